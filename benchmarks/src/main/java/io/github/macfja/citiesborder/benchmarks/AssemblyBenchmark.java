@@ -0,0 +1,106 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import io.github.macfja.citiesborder.XmlHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class AssemblyBenchmark.
+ * Measure the assembly of relations made of many (shuffled and flipped) ways into a ring.
+ * The Xml file is read once (in the setup), so the node and way ingestion is not measured.
+ *
+ * @author MacFJA
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssemblyBenchmark {
+    /**
+     * The number of way in each relation
+     */
+    @Param({"10", "100", "500"})
+    public int ways;
+    /**
+     * The number of node in each way
+     */
+    @Param({"20"})
+    public int nodesPerWay;
+    /**
+     * The number of relation
+     */
+    @Param({"10"})
+    public int cities;
+
+    /**
+     * The handler that keeps the read relations
+     */
+    private CollectingHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File input = SyntheticData.temporaryFile(".osm");
+        SyntheticData.writeOsmXml(input, cities, ways, nodesPerWay, SyntheticData.SEED);
+        SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+        handler = new CollectingHandler();
+        parser.parse(input, handler);
+    }
+
+    @Benchmark
+    public void assembleRelations(Blackhole blackhole) {
+        handler.exportAll(blackhole);
+    }
+
+    /**
+     * Xml handler that keeps the relations in memory instead of writing them into a file
+     */
+    public static class CollectingHandler extends XmlHandler {
+        /**
+         * The read relations
+         */
+        private final List<Relation> relations = new ArrayList<>();
+
+        /**
+         * Constructor.
+         */
+        public CollectingHandler() {
+            super(null);
+        }
+
+        @Override
+        protected void writeCurrentRelation() {
+            relations.add(currentRelation);
+        }
+
+        /**
+         * Assemble and export all the read relations
+         *
+         * @param blackhole The blackhole that consume the exported relations
+         */
+        public void exportAll(Blackhole blackhole) {
+            for (Relation relation : relations) {
+                blackhole.consume(relation.toStringExport());
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class BenchmarkRunner.
+ * Run the benchmarks with the GC/allocation profiler.
+ * The first argument (optional) is a regular expression to select the benchmarks to run.
+ *
+ * @author MacFJA
+ */
+public final class BenchmarkRunner {
+    /**
+     * Protect class creation
+     */
+    private BenchmarkRunner() {
+        throw new RuntimeException("Can not be instantiate");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import io.github.macfja.citiesborder.XmlHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class NodeIngestionBenchmark.
+ * Measure the reading of {@code <node>} elements by {@link XmlHandler}.
+ *
+ * @author MacFJA
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeIngestionBenchmark {
+    /**
+     * The number of node in the Xml file
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int nodes;
+
+    /**
+     * The generated Xml file
+     */
+    private File input;
+    /**
+     * The Xml parser
+     */
+    private SAXParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        input = SyntheticData.temporaryFile(".osm");
+        SyntheticData.writeOsmNodesXml(input, nodes, SyntheticData.SEED);
+        parser = SAXParserFactory.newInstance().newSAXParser();
+    }
+
+    @Benchmark
+    public XmlHandler ingestNodes() throws Exception {
+        XmlHandler handler = new XmlHandler(null);
+        parser.parse(input, handler);
+        return handler;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import io.github.macfja.citiesborder.Border;
+import io.github.macfja.citiesborder.PreparedBorder;
+
+import java.util.Random;
+
+/**
+ * Class PreparedBorderCheck.
+ * Compare the prepared (grid) and the unprepared (all edges) point in border test on random GPS positions.
+ * The GPS positions of the borders are rounded to a coarse precision, so many cell centers are on the line of an edge.
+ * Exit with the status {@code 1} if a position has a different result.
+ *
+ * @author MacFJA
+ */
+public final class PreparedBorderCheck {
+    /**
+     * The number of borders by precision
+     */
+    private static final int BORDERS = 300;
+    /**
+     * The number of random GPS positions by border
+     */
+    private static final int SAMPLES = 20000;
+
+    /**
+     * Protect class creation
+     */
+    private PreparedBorderCheck() {
+        throw new RuntimeException("Can not be instantiate");
+    }
+
+    public static void main(String[] args) {
+        long mismatches = 0;
+        for (double precision : new double[]{1e-3, 1e-4, 1e-7}) {
+            Random random = new Random(SyntheticData.SEED);
+            long precisionMismatches = 0;
+            for (int index = 0; index < BORDERS; index++) {
+                Border border = new Border(index, SyntheticData.cityName(index), borderData(index, precision, random));
+                PreparedBorder prepared = border.prepare();
+                if (prepared != null) {
+                    precisionMismatches += prepared.countMismatches(random, SAMPLES);
+                }
+            }
+            System.out.println("Precision " + precision + ": " + precisionMismatches + " mismatch(es) on " + (BORDERS * SAMPLES) + " position(s)");
+            mismatches += precisionMismatches;
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generate the GPS positions of a star shaped border
+     *
+     * @param index     The border index (change the number of branches)
+     * @param precision The precision of the GPS positions
+     * @param random    The random generator
+     * @return The GPS positions, as written in the CitiesBorder file
+     */
+    private static String borderData(int index, double precision, Random random) {
+        int count = PreparedBorder.MIN_SIZE + random.nextInt(2000);
+        double centerLatitude = random.nextDouble();
+        double centerLongitude = random.nextDouble();
+        StringBuilder data = new StringBuilder();
+        for (int point = 0; point < count; point++) {
+            double angle = 2 * Math.PI * point / count;
+            double radius = 0.05 + 0.03 * Math.sin(angle * (3 + index % 7)) + 0.01 * random.nextDouble();
+            if (data.length() > 0) {
+                data.append('\n');
+            }
+            data.append(Math.round((centerLatitude + radius * Math.sin(angle)) / precision) * precision)
+                    .append(' ')
+                    .append(Math.round((centerLongitude + radius * Math.cos(angle)) / precision) * precision);
+        }
+        return data.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import io.github.macfja.citiesborder.InputReader;
+import io.github.macfja.citiesborder.Worker;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class SearchBenchmark.
+ * Measure the reading of a CitiesBorder file: {@link Worker#search(String, String)} latency and full file scan
+ * throughput (scans and decompressed bytes by second).
+ *
+ * @author MacFJA
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+    /**
+     * The number of city in the CitiesBorder file
+     */
+    @Param({"1000", "10000"})
+    public int cities;
+    /**
+     * The number of GPS position of each city
+     */
+    @Param({"200"})
+    public int pointsPerCity;
+
+    /**
+     * The generated CitiesBorder file
+     */
+    private String path;
+    /**
+     * The name of a city in the middle of the file
+     */
+    private String hitName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File file = SyntheticData.temporaryFile(".gz");
+        SyntheticData.writeCitiesBorderFile(file, cities, pointsPerCity, SyntheticData.SEED);
+        path = file.getPath();
+        hitName = SyntheticData.cityName(cities / 2);
+    }
+
+    @Benchmark
+    public String[] searchHit() throws Exception {
+        return Worker.search(path, hitName);
+    }
+
+    @Benchmark
+    public String[] searchMiss() throws Exception {
+        return Worker.search(path, "Unknown city");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void fullScan(ScanCounters counters, Blackhole blackhole) throws Exception {
+        InputReader reader = new InputReader(path);
+        try {
+            String name;
+            while ((name = reader.readEntry()) != null) {
+                blackhole.consume(name);
+                blackhole.consume(reader.readData());
+            }
+        } finally {
+            reader.close();
+        }
+        counters.inflatedBytes += reader.getInflatedSize();
+    }
+
+    /**
+     * The counters of the full scan, reported by second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ScanCounters {
+        /**
+         * The number of decompressed bytes
+         */
+        public long inflatedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inflatedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.macfja.citiesborder.benchmarks;
+
+import io.github.macfja.citiesborder.GZipFileWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Class SyntheticData.
+ * Generate deterministic OSM Xml and CitiesBorder files for the benchmarks.
+ * The same parameters (and seed) always produce the same file.
+ *
+ * @author MacFJA
+ */
+public final class SyntheticData {
+    /**
+     * The seed used by all benchmarks
+     */
+    public static final long SEED = 0x43697469L;
+
+    /**
+     * Protect class creation
+     */
+    private SyntheticData() {
+        throw new RuntimeException("Can not be instantiate");
+    }
+
+    /**
+     * Get the name of a generated city
+     *
+     * @param index The position of the city in the generated file
+     * @return The name of the city
+     */
+    public static String cityName(int index) {
+        return "City " + index;
+    }
+
+    /**
+     * Create a temporary file that is deleted when the JVM exit
+     *
+     * @param suffix The file suffix
+     * @return The file
+     * @throws IOException if the file can not be created
+     */
+    public static File temporaryFile(String suffix) throws IOException {
+        File file = File.createTempFile("citiesborder-benchmark-", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Generate an OSM Xml file, with the same structure as the Osmosis output.
+     * Every city is a ring of {@code waysPerCity * nodesPerWay} nodes, split into ways that are shuffled inside the
+     * relation, and about half of them are flipped (nodes in the reverse order), so the assembly has to reorder and
+     * flip them.
+     *
+     * @param file        The file to write
+     * @param cities      The number of relation (city)
+     * @param waysPerCity The number of way in each relation
+     * @param nodesPerWay The number of node in each way
+     * @param seed        The random generator seed
+     * @throws IOException if an error occurs during the writing
+     */
+    public static void writeOsmXml(File file, int cities, int waysPerCity, int nodesPerWay, long seed) throws IOException {
+        Random random = new Random(seed);
+        int nodesPerCity = waysPerCity * nodesPerWay;
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            writer.write("<?xml version='1.0' encoding='UTF-8'?>\n");
+            writer.write("<osm version=\"0.6\" generator=\"CitiesBorder benchmarks\">\n");
+
+            for (int city = 0; city < cities; city++) {
+                double[] center = cityCenter(city);
+                for (int node = 0; node < nodesPerCity; node++) {
+                    double[] position = ringPosition(center, node, nodesPerCity, random);
+                    writer.write("  <node id=\"" + nodeId(city, node, nodesPerCity) + "\" version=\"1\" lat=\""
+                            + format(position[0]) + "\" lon=\"" + format(position[1]) + "\"/>\n");
+                }
+            }
+
+            for (int city = 0; city < cities; city++) {
+                for (int way = 0; way < waysPerCity; way++) {
+                    writer.write("  <way id=\"" + wayId(city, way, waysPerCity) + "\" version=\"1\">\n");
+                    // The last node of a way is the first node of the next one (the ring is closed)
+                    boolean flipped = random.nextBoolean();
+                    for (int index = 0; index <= nodesPerWay; index++) {
+                        int node = way * nodesPerWay + (flipped ? nodesPerWay - index : index);
+                        writer.write("    <nd ref=\"" + nodeId(city, node % nodesPerCity, nodesPerCity) + "\"/>\n");
+                    }
+                    writer.write("  </way>\n");
+                }
+            }
+
+            for (int city = 0; city < cities; city++) {
+                List<Integer> ways = new ArrayList<>();
+                for (int way = 0; way < waysPerCity; way++) {
+                    ways.add(way);
+                }
+                Collections.shuffle(ways, random);
+
+                writer.write("  <relation id=\"" + (city + 1) + "\" version=\"1\">\n");
+                for (Integer way : ways) {
+                    writer.write("    <member type=\"way\" ref=\"" + wayId(city, way, waysPerCity) + "\" role=\"outer\"/>\n");
+                }
+                writer.write("    <tag k=\"admin_level\" v=\"8\"/>\n");
+                writer.write("    <tag k=\"boundary\" v=\"administrative\"/>\n");
+                writer.write("    <tag k=\"name\" v=\"" + cityName(city) + "\"/>\n");
+                writer.write("  </relation>\n");
+            }
+
+            writer.write("</osm>\n");
+        }
+    }
+
+    /**
+     * Generate an OSM Xml file that only contains nodes
+     *
+     * @param file  The file to write
+     * @param nodes The number of node
+     * @param seed  The random generator seed
+     * @throws IOException if an error occurs during the writing
+     */
+    public static void writeOsmNodesXml(File file, int nodes, long seed) throws IOException {
+        Random random = new Random(seed);
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            writer.write("<?xml version='1.0' encoding='UTF-8'?>\n");
+            writer.write("<osm version=\"0.6\" generator=\"CitiesBorder benchmarks\">\n");
+            for (int node = 0; node < nodes; node++) {
+                writer.write("  <node id=\"" + (node + 1) + "\" version=\"1\" lat=\""
+                        + format(40.0 + random.nextDouble() * 10) + "\" lon=\""
+                        + format(-5.0 + random.nextDouble() * 15) + "\"/>\n");
+            }
+            writer.write("</osm>\n");
+        }
+    }
+
+    /**
+     * Generate a CitiesBorder file
+     *
+     * @param file           The file to write
+     * @param cities         The number of city
+     * @param pointsPerCity  The number of GPS position of each city
+     * @param seed           The random generator seed
+     * @throws IOException if an error occurs during the writing
+     */
+    public static void writeCitiesBorderFile(File file, int cities, int pointsPerCity, long seed) throws IOException {
+        Random random = new Random(seed);
+
+        GZipFileWriter writer = new GZipFileWriter(file.getPath(), false);
+        try {
+            for (int city = 0; city < cities; city++) {
+                double[] center = cityCenter(city);
+                String[] points = new String[pointsPerCity];
+                for (int point = 0; point < pointsPerCity; point++) {
+                    double[] position = ringPosition(center, point, pointsPerCity, random);
+                    points[point] = format(position[0]) + " " + format(position[1]);
+                }
+                StringBuilder content = new StringBuilder();
+                for (String point : points) {
+                    content.append(point).append('\n');
+                }
+                // Close the ring
+                content.append(points[0]);
+                writer.write("{" + cityName(city) + "}:" + content.length() + "\n" + content + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Get the center of a city. Cities are placed on a grid so they don't overlap.
+     *
+     * @param city The city index
+     * @return The latitude and the longitude of the center
+     */
+    private static double[] cityCenter(int city) {
+        return new double[]{40.0 + (city / 1000) * 0.1, (city % 1000) * 0.1 - 5.0};
+    }
+
+    /**
+     * Get the position of a node of a city ring
+     *
+     * @param center The center of the city
+     * @param index  The node index in the ring
+     * @param count  The number of node in the ring
+     * @param random The random generator (to add noise on the radius)
+     * @return The latitude and the longitude of the node
+     */
+    private static double[] ringPosition(double[] center, int index, int count, Random random) {
+        double angle = 2 * Math.PI * index / count;
+        double radius = 0.03 + random.nextDouble() * 0.01;
+        return new double[]{center[0] + radius * Math.sin(angle), center[1] + radius * Math.cos(angle)};
+    }
+
+    /**
+     * Format a coordinate like OSM does (7 decimals)
+     *
+     * @param value The coordinate
+     * @return The formatted coordinate
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.7f", value);
+    }
+
+    /**
+     * Get the unique id of a node
+     */
+    private static long nodeId(int city, int node, int nodesPerCity) {
+        return (long) city * nodesPerCity + node + 1;
+    }
+
+    /**
+     * Get the unique id of a way
+     */
+    private static long wayId(int city, int way, int waysPerCity) {
+        return (long) city * waysPerCity + way + 1;
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.macfja.citiesborder;
+
+/**
+ * Class Border.
+ * A city border loaded in memory, with its GPS positions parsed.
+ *
+ * @author MacFJA
+ */
+public class Border {
+    /**
+     * The id of the border (its position in the CitiesBorder file, starting at 0)
+     */
+    protected final int id;
+    /**
+     * The name of the city
+     */
+    protected final String name;
+    /**
+     * The GPS positions, as written in the CitiesBorder file (one "lat lon" by line)
+     */
+    protected final String data;
+    /**
+     * The latitude of each GPS position
+     */
+    protected final double[] latitudes;
+    /**
+     * The longitude of each GPS position
+     */
+    protected final double[] longitudes;
+    /**
+     * The south limit of the bounding box
+     */
+    protected double minLatitude = Double.POSITIVE_INFINITY;
+    /**
+     * The north limit of the bounding box
+     */
+    protected double maxLatitude = Double.NEGATIVE_INFINITY;
+    /**
+     * The west limit of the bounding box
+     */
+    protected double minLongitude = Double.POSITIVE_INFINITY;
+    /**
+     * The east limit of the bounding box
+     */
+    protected double maxLongitude = Double.NEGATIVE_INFINITY;
+    /**
+     * The grid used to speed up {@link #contains(double, double)}.
+     * Can be {@code null} if the border is not prepared
+     */
+    protected volatile PreparedBorder prepared;
+
+    /**
+     * Constructor.
+     *
+     * @param id   The id of the border
+     * @param name The name of the city
+     * @param data The GPS positions, as written in the CitiesBorder file
+     */
+    public Border(int id, String name, String data) {
+        this.id = id;
+        this.name = name;
+        this.data = data;
+
+        String[] lines = data.isEmpty() ? new String[0] : data.split("\n");
+        latitudes = new double[lines.length];
+        longitudes = new double[lines.length];
+        for (int index = 0; index < lines.length; index++) {
+            int separator = lines[index].indexOf(' ');
+            latitudes[index] = Double.parseDouble(lines[index].substring(0, separator));
+            longitudes[index] = Double.parseDouble(lines[index].substring(separator + 1));
+            minLatitude = Math.min(minLatitude, latitudes[index]);
+            maxLatitude = Math.max(maxLatitude, latitudes[index]);
+            minLongitude = Math.min(minLongitude, longitudes[index]);
+            maxLongitude = Math.max(maxLongitude, longitudes[index]);
+        }
+    }
+
+    /**
+     * @return The id of the border (its position in the CitiesBorder file)
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The name of the city
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The GPS positions, as written in the CitiesBorder file
+     */
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * @return The number of GPS position
+     */
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Check if a GPS position is inside the bounding box of the border
+     *
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return {@code true} if the position is inside the bounding box
+     */
+    public boolean inBoundingBox(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+    /**
+     * Check if a GPS position is inside the border.
+     * The GPS positions are used as a polygon (even-odd rule).
+     *
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return {@code true} if the position is inside the border
+     */
+    public boolean contains(double latitude, double longitude) {
+        PreparedBorder grid = prepared;
+        if (grid != null) {
+            return grid.contains(latitude, longitude);
+        }
+        return containsByEdges(latitude, longitude);
+    }
+
+    /**
+     * Check if a GPS position is inside the border, by testing all the edges of the border (even-odd rule).
+     *
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return {@code true} if the position is inside the border
+     */
+    protected boolean containsByEdges(double latitude, double longitude) {
+        if (latitudes.length < 3 || !inBoundingBox(latitude, longitude)) {
+            return false;
+        }
+        boolean inside = false;
+        for (int current = 0, previous = latitudes.length - 1; current < latitudes.length; previous = current++) {
+            if (crosses(previous, current, latitude, longitude)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Build the grid that speed up {@link #contains(double, double)} (if not already built).
+     * Borders with less than {@link PreparedBorder#MIN_SIZE} GPS positions are not prepared.
+     *
+     * @return The grid, or {@code null} if the border is too small to be prepared
+     */
+    public PreparedBorder prepare() {
+        if (prepared == null && latitudes.length >= PreparedBorder.MIN_SIZE) {
+            prepared = new PreparedBorder(this);
+        }
+        return prepared;
+    }
+
+    /**
+     * @return The grid that speed up {@link #contains(double, double)}, or {@code null} if the border is not prepared
+     */
+    public PreparedBorder getPrepared() {
+        return prepared;
+    }
+
+    /**
+     * Set the grid that speed up {@link #contains(double, double)}
+     *
+     * @param prepared The grid (or {@code null} to test all edges)
+     */
+    public void setPrepared(PreparedBorder prepared) {
+        this.prepared = prepared;
+    }
+
+    /**
+     * Check if an edge of the polygon crosses the ray that go from a position to the east
+     *
+     * @param from      The index of the first position of the edge
+     * @param to        The index of the second position of the edge
+     * @param latitude  The latitude of the ray origin
+     * @param longitude The longitude of the ray origin
+     * @return {@code true} if the edge crosses the ray
+     */
+    protected boolean crosses(int from, int to, double latitude, double longitude) {
+        if ((latitudes[from] > latitude) == (latitudes[to] > latitude)) {
+            return false;
+        }
+        double crossing = longitudes[from] + (latitude - latitudes[from])
+                * (longitudes[to] - longitudes[from]) / (latitudes[to] - latitudes[from]);
+        return longitude < crossing;
+    }
+
+    /**
+     * Export the border into the CitiesBorder file format
+     *
+     * @return The border
+     */
+    public String toStringExport() {
+        return "{" + name + "}:" + data.length() + "\n" + data + "\n";
+    }
+
+    @Override
+    public String toString() {
+        return "{" + name + "} #" + id + " " + latitudes.length + " position(s)";
+    }
+}
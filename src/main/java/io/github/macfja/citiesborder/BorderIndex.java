@@ -0,0 +1,422 @@
+package io.github.macfja.citiesborder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class BorderIndex.
+ * All the borders of a CitiesBorder file, loaded in memory.
+ *
+ * @author MacFJA
+ */
+public class BorderIndex {
+    /**
+     * The suffix of the file that contains the prepared borders of a CitiesBorder file
+     */
+    public static final String PREPARED_SUFFIX = ".prepared";
+    /**
+     * The first bytes of a prepared borders file ("CBPB")
+     */
+    protected static final int PREPARED_MAGIC = 0x43425042;
+    /**
+     * The version of the prepared borders file format
+     */
+    protected static final int PREPARED_VERSION = 3;
+
+    /**
+     * The borders, in the order of the file (the position is the id)
+     */
+    protected final List<Border> borders = new ArrayList<>();
+    /**
+     * The borders by name (name => border).
+     * If several cities have the same name, the first one of the file is kept (like {@link Worker#search(String, String)})
+     */
+    protected final Map<String, Border> names = new HashMap<>();
+    /**
+     * The checksum of the name and the GPS positions of all the borders, in the order of the file.
+     * Written in the prepared borders file to check that it was built from the same borders
+     */
+    protected final CRC32 checksum = new CRC32();
+    /**
+     * The spatial grid used to find the borders around a GPS position.
+     * Can be {@code null} if not built yet (it is built on the first {@link #locate(double, double)})
+     */
+    protected volatile Grid grid;
+
+    /**
+     * Load all the borders of a CitiesBorder file
+     *
+     * @param path The path to the CitiesBorder file
+     * @return The loaded borders
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static BorderIndex load(String path) throws IOException {
+        BorderIndex index = new BorderIndex();
+        InputReader reader = new InputReader(path);
+        try {
+            String name;
+            while ((name = reader.readEntry()) != null) {
+                index.add(name, reader.readData());
+            }
+        } finally {
+            reader.close();
+        }
+        return index;
+    }
+
+    /**
+     * Load all the borders of a CitiesBorder file, with their grids
+     * (see {@link PreparedBorder}) to speed up the lookup by GPS position.
+     * The grids are read from the prepared borders file (see {@link #getPreparedPath(String)}) if it was built
+     * from the same borders (same checksum), otherwise they are built.
+     *
+     * @param path     The path to the CitiesBorder file
+     * @param prepared Indicate if the borders must be prepared
+     * @return The loaded borders
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static BorderIndex load(String path, boolean prepared) throws IOException {
+        BorderIndex index = load(path);
+        if (!prepared) {
+            return index;
+        }
+        File preparedFile = new File(getPreparedPath(path));
+        if (preparedFile.isFile()) {
+            try {
+                index.readPrepared(preparedFile.getPath());
+                return index;
+            } catch (IOException e) {
+                Logger.getLogger(BorderIndex.class.getName()).log(Level.WARNING, "Prepared borders ignored: " + e.getMessage());
+            }
+        }
+        index.prepareBorders();
+        return index;
+    }
+
+    /**
+     * Get the path of the prepared borders file of a CitiesBorder file
+     *
+     * @param path The path to the CitiesBorder file
+     * @return The path to the prepared borders file
+     */
+    public static String getPreparedPath(String path) {
+        return path + PREPARED_SUFFIX;
+    }
+
+    /**
+     * Build the grid of all borders (see {@link Border#prepare()})
+     */
+    public void prepareBorders() {
+        for (Border border : borders) {
+            border.prepare();
+        }
+    }
+
+    /**
+     * Write the grid of all borders into a file
+     *
+     * @param path The path to the prepared borders file
+     * @throws IOException if an error occurs during the writing
+     */
+    public void writePrepared(String path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(path))))) {
+            output.writeInt(PREPARED_MAGIC);
+            output.writeInt(PREPARED_VERSION);
+            output.writeLong(getChecksum());
+            output.writeInt(borders.size());
+            for (Border border : borders) {
+                output.writeInt(border.size());
+                PreparedBorder grid = border.getPrepared();
+                output.writeBoolean(grid != null);
+                if (grid != null) {
+                    grid.write(output);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the grid of all borders from a file written by {@link #writePrepared(String)}.
+     * Nothing is changed if the file does not match the borders.
+     *
+     * @param path The path to the prepared borders file
+     * @throws IOException if an error occurs during the reading, or if the file does not match the borders
+     */
+    public void readPrepared(String path) throws IOException {
+        PreparedBorder[] grids = new PreparedBorder[borders.size()];
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(path))))) {
+            if (input.readInt() != PREPARED_MAGIC || input.readInt() != PREPARED_VERSION) {
+                throw new IOException("Not a prepared borders file: " + path);
+            }
+            if (input.readLong() != getChecksum() || input.readInt() != borders.size()) {
+                throw new IOException("The prepared borders file does not match the borders: " + path);
+            }
+            for (Border border : borders) {
+                if (input.readInt() != border.size()) {
+                    throw new IOException("The prepared borders file does not match the borders: " + path);
+                }
+                if (input.readBoolean()) {
+                    grids[border.getId()] = PreparedBorder.read(border, input);
+                }
+            }
+        }
+        for (Border border : borders) {
+            border.setPrepared(grids[border.getId()]);
+        }
+    }
+
+    /**
+     * Add a border
+     *
+     * @param name The name of the city
+     * @param data The GPS positions, as written in the CitiesBorder file
+     * @return The added border
+     */
+    public Border add(String name, String data) {
+        Border border = new Border(borders.size(), name, data);
+        borders.add(border);
+        grid = null;
+        checksum.update((name + '\n' + data + '\n').getBytes(StandardCharsets.UTF_8));
+        if (!names.containsKey(name)) {
+            names.put(name, border);
+        }
+        return border;
+    }
+
+    /**
+     * @return The checksum of the name and the GPS positions of all the borders
+     */
+    public long getChecksum() {
+        return checksum.getValue();
+    }
+
+    /**
+     * @return The number of borders
+     */
+    public int size() {
+        return borders.size();
+    }
+
+    /**
+     * @return All the borders, in the order of the file
+     */
+    public List<Border> getBorders() {
+        return Collections.unmodifiableList(borders);
+    }
+
+    /**
+     * Get a border by its id
+     *
+     * @param id The id of the border
+     * @return The border, or {@code null} if the id does not exist
+     */
+    public Border getById(int id) {
+        if (id < 0 || id >= borders.size()) {
+            return null;
+        }
+        return borders.get(id);
+    }
+
+    /**
+     * Get a border by the name of its city
+     *
+     * @param name The name of the city
+     * @return The border, or {@code null} if the city does not exist
+     */
+    public Border getByName(String name) {
+        return names.get(name);
+    }
+
+    /**
+     * Get the border that contains a GPS position
+     *
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return The first border that contains the position, or {@code null} if none contains it
+     */
+    public Border locate(double latitude, double longitude) {
+        for (int id : prepare().candidates(latitude, longitude)) {
+            Border border = borders.get(id);
+            if (border.contains(latitude, longitude)) {
+                return border;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the spatial grid (if not already built).
+     * Must be called before using the index from several threads if borders are added after the first lookup.
+     *
+     * @return The spatial grid
+     */
+    public Grid prepare() {
+        Grid result = grid;
+        if (result == null) {
+            synchronized (this) {
+                result = grid;
+                if (result == null) {
+                    result = new Grid(borders);
+                    grid = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A uniform grid over all borders: each cell contains the id of the borders which bounding box overlap the cell
+     */
+    public static class Grid {
+        /**
+         * The maximum number of cells by side
+         */
+        protected static final int MAX_SIDE = 1024;
+        /**
+         * The empty list of border id
+         */
+        protected static final int[] NONE = new int[0];
+
+        /**
+         * The south limit of the grid
+         */
+        protected double minLatitude = Double.POSITIVE_INFINITY;
+        /**
+         * The west limit of the grid
+         */
+        protected double minLongitude = Double.POSITIVE_INFINITY;
+        /**
+         * The height of a cell
+         */
+        protected double cellHeight;
+        /**
+         * The width of a cell
+         */
+        protected double cellWidth;
+        /**
+         * The number of rows
+         */
+        protected int rows;
+        /**
+         * The number of columns
+         */
+        protected int columns;
+        /**
+         * The id of borders of each cell (row * columns + column => ids), in the order of the file
+         */
+        protected int[][] cells;
+
+        /**
+         * Constructor.
+         *
+         * @param borders The borders to put in the grid
+         */
+        protected Grid(List<Border> borders) {
+            double maxLatitude = Double.NEGATIVE_INFINITY;
+            double maxLongitude = Double.NEGATIVE_INFINITY;
+            for (Border border : borders) {
+                if (border.size() == 0) {
+                    continue;
+                }
+                minLatitude = Math.min(minLatitude, border.minLatitude);
+                maxLatitude = Math.max(maxLatitude, border.maxLatitude);
+                minLongitude = Math.min(minLongitude, border.minLongitude);
+                maxLongitude = Math.max(maxLongitude, border.maxLongitude);
+            }
+            if (minLatitude > maxLatitude) {
+                cells = new int[0][];
+                return;
+            }
+
+            // About one cell by border
+            int side = (int) Math.min(MAX_SIDE, Math.max(1, Math.ceil(Math.sqrt(borders.size()))));
+            rows = side;
+            columns = side;
+            cellHeight = Math.max((maxLatitude - minLatitude) / rows, Double.MIN_NORMAL);
+            cellWidth = Math.max((maxLongitude - minLongitude) / columns, Double.MIN_NORMAL);
+
+            List<List<Integer>> content = new ArrayList<>(rows * columns);
+            for (int cell = 0; cell < rows * columns; cell++) {
+                content.add(null);
+            }
+            for (Border border : borders) {
+                if (border.size() == 0) {
+                    continue;
+                }
+                for (int row = row(border.minLatitude); row <= row(border.maxLatitude); row++) {
+                    for (int column = column(border.minLongitude); column <= column(border.maxLongitude); column++) {
+                        List<Integer> ids = content.get(row * columns + column);
+                        if (ids == null) {
+                            ids = new ArrayList<>();
+                            content.set(row * columns + column, ids);
+                        }
+                        ids.add(border.id);
+                    }
+                }
+            }
+
+            cells = new int[rows * columns][];
+            for (int cell = 0; cell < cells.length; cell++) {
+                List<Integer> ids = content.get(cell);
+                if (ids == null) {
+                    cells[cell] = NONE;
+                    continue;
+                }
+                cells[cell] = new int[ids.size()];
+                for (int index = 0; index < ids.size(); index++) {
+                    cells[cell][index] = ids.get(index);
+                }
+            }
+        }
+
+        /**
+         * Get the id of the borders which bounding box may contain a GPS position
+         *
+         * @param latitude  The latitude of the position
+         * @param longitude The longitude of the position
+         * @return The id of the borders, in the order of the file
+         */
+        public int[] candidates(double latitude, double longitude) {
+            if (cells.length == 0) {
+                return NONE;
+            }
+            double rowPosition = (latitude - minLatitude) / cellHeight;
+            double columnPosition = (longitude - minLongitude) / cellWidth;
+            if (rowPosition < 0 || rowPosition > rows || columnPosition < 0 || columnPosition > columns) {
+                return NONE;
+            }
+            return cells[row(latitude) * columns + column(longitude)];
+        }
+
+        /**
+         * Get the row of a latitude (clamped to the grid)
+         */
+        protected int row(double latitude) {
+            return Math.min(rows - 1, Math.max(0, (int) ((latitude - minLatitude) / cellHeight)));
+        }
+
+        /**
+         * Get the column of a longitude (clamped to the grid)
+         */
+        protected int column(double longitude) {
+            return Math.min(columns - 1, Math.max(0, (int) ((longitude - minLongitude) / cellWidth)));
+        }
+    }
+}
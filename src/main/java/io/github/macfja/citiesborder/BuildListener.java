@@ -0,0 +1,41 @@
+package io.github.macfja.citiesborder;
+
+/**
+ * Interface BuildListener.
+ * Receive the events of a CitiesBorder file generation.
+ *
+ * @author MacFJA
+ */
+public interface BuildListener {
+    /**
+     * Called when a node is added to the node storage
+     *
+     * @param id       The id of the node
+     * @param position The GPS position of the node
+     */
+    void nodeStored(long id, String position);
+
+    /**
+     * Called when a way is added to the way storage
+     *
+     * @param id The id of the way
+     */
+    void wayStored(long id);
+
+    /**
+     * Called when a relation (city) is written into the file
+     *
+     * @param name         The name of the relation
+     * @param ways         The number of ways of the relation
+     * @param assemblyTime The time (in nanoseconds) used to assemble the ways of the relation
+     */
+    void relationWritten(String name, int ways, long assemblyTime);
+
+    /**
+     * Called when the file generation is done
+     *
+     * @param uncompressedSize The number of bytes written, before the compression
+     * @param compressedSize   The number of bytes written, after the compression
+     */
+    void buildFinished(long uncompressedSize, long compressedSize);
+}
@@ -0,0 +1,296 @@
+package io.github.macfja.citiesborder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class BulkGeocoder.
+ * Find the city of every GPS position of a (large) CSV file.
+ * <p>
+ * The input file is split into chunks (on line boundaries) that are memory-mapped and processed in parallel.
+ * Each line of the input ({@code lat,lon[,...]}) is written in the output, in the same order,
+ * followed by the id and the name of the city that contains the position (empty if no city contains it).
+ * Empty lines are ignored.
+ *
+ * @author MacFJA
+ */
+public class BulkGeocoder {
+    /**
+     * The default size (in bytes) of a chunk of the input file
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    /**
+     * The maximum size (in bytes) of a chunk of the input file (the output of a chunk must fit in a byte array)
+     */
+    public static final int MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+    /**
+     * The charset of the output (names of cities)
+     */
+    protected static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The borders to look into
+     */
+    protected final BorderIndex index;
+    /**
+     * The number of threads to use
+     */
+    protected int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * The size (in bytes) of a chunk of the input file
+     */
+    protected int chunkSize = DEFAULT_CHUNK_SIZE;
+    /**
+     * The application logger
+     */
+    protected Logger logger = Logger.getLogger(BulkGeocoder.class.getName());
+
+    /**
+     * Constructor.
+     *
+     * @param index The borders to look into
+     */
+    public BulkGeocoder(BorderIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Set the number of threads to use (default: the number of processors)
+     *
+     * @param threads The number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set the size of a chunk of the input file (default: {@link #DEFAULT_CHUNK_SIZE}, maximum: {@link #MAX_CHUNK_SIZE})
+     *
+     * @param chunkSize The size in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(1, chunkSize));
+    }
+
+    /**
+     * Find the city of every GPS position of a CSV file
+     *
+     * @param inputPath  The CSV file (one {@code lat,lon} by line, other columns are kept)
+     * @param outputPath The CSV file to generate
+     * @return The number of processed positions
+     * @throws IOException if an error occurs while reading or writing a file
+     */
+    public long run(String inputPath, String outputPath) throws IOException {
+        long start = System.nanoTime();
+        long points = 0;
+        index.prepare();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (RandomAccessFile input = new RandomAccessFile(inputPath, "r");
+             OutputStream output = new BufferedOutputStream(new FileOutputStream(outputPath))) {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            long position = 0;
+            // Bounded list of the chunks in progress, in the order of the file
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+
+            while (position < size || !pending.isEmpty()) {
+                while (position < size && pending.size() < threads * 2) {
+                    long end = nextLineStart(channel, Math.min(size, position + chunkSize), size);
+                    pending.add(executor.submit(new ChunkTask(channel, position, end)));
+                    position = end;
+                }
+                Chunk chunk = pending.poll().get();
+                output.write(chunk.output);
+                points += chunk.points;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double elapsed = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        logger.log(Level.INFO, String.format(
+                Locale.ROOT, "%d position(s) in %.1fs (%.0f positions/s)", points, elapsed, elapsed > 0 ? points / elapsed : 0
+        ));
+        return points;
+    }
+
+    /**
+     * Get the position of the start of the line that follow a position
+     *
+     * @param channel  The input file
+     * @param position The position to start from
+     * @param size     The size of the file
+     * @return The position of the next line start (or the size of the file)
+     * @throws IOException if an error occurs while reading the file
+     */
+    protected long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position == 0 || position >= size) {
+            return position;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        // Start on the previous byte, in case the position is already a line start
+        long current = position - 1;
+        while (current < size) {
+            buffer.clear();
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int index = 0; index < read; index++) {
+                if (buffer.get(index) == '\n') {
+                    return current + index + 1;
+                }
+            }
+            current += read;
+        }
+        return size;
+    }
+
+    /**
+     * Find the cities of one line of the input
+     *
+     * @param line      The content of the line (without the end of line)
+     * @param output    Where to write the line with its city
+     * @param firstLine {@code true} if the line is the first one of the file
+     * @return {@code true} if the line contains a GPS position
+     * @throws IOException if an error occurs while writing
+     */
+    protected boolean processLine(byte[] line, ByteArrayOutputStream output, boolean firstLine) throws IOException {
+        output.write(line);
+        String text = new String(line, CHARSET);
+        int firstSeparator = text.indexOf(',');
+        int secondSeparator = text.indexOf(',', firstSeparator + 1);
+        if (secondSeparator < 0) {
+            secondSeparator = text.length();
+        }
+        try {
+            double latitude = Double.parseDouble(text.substring(0, firstSeparator).trim());
+            double longitude = Double.parseDouble(text.substring(firstSeparator + 1, secondSeparator).trim());
+            Border border = index.locate(latitude, longitude);
+            if (border == null) {
+                output.write(",,\n".getBytes(CHARSET));
+            } else {
+                output.write(("," + border.getId() + "," + escape(border.getName()) + "\n").getBytes(CHARSET));
+            }
+            return true;
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            // Not a position: it's the header of the file, or an invalid line
+            output.write((firstLine ? ",city_id,city_name\n" : ",,\n").getBytes(CHARSET));
+            return false;
+        }
+    }
+
+    /**
+     * Escape a CSV value
+     *
+     * @param value The value
+     * @return The value, quoted if needed
+     */
+    protected static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * The result of a chunk
+     */
+    protected static class Chunk {
+        /**
+         * The output of the chunk
+         */
+        byte[] output;
+        /**
+         * The number of processed positions
+         */
+        long points;
+    }
+
+    /**
+     * The processing of a chunk of the input file
+     */
+    protected class ChunkTask implements Callable<Chunk> {
+        /**
+         * The input file
+         */
+        private final FileChannel channel;
+        /**
+         * The position of the first byte of the chunk
+         */
+        private final long start;
+        /**
+         * The position after the last byte of the chunk
+         */
+        private final long end;
+
+        /**
+         * Constructor.
+         *
+         * @param channel The input file
+         * @param start   The position of the first byte of the chunk
+         * @param end     The position after the last byte of the chunk
+         */
+        public ChunkTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, (end - start) * 2));
+            Chunk chunk = new Chunk();
+
+            int lineStart = 0;
+            int limit = buffer.limit();
+            for (int position = 0; position <= limit; position++) {
+                if (position < limit && buffer.get(position) != '\n') {
+                    continue;
+                }
+                int lineEnd = position;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    byte[] line = new byte[lineEnd - lineStart];
+                    buffer.position(lineStart);
+                    buffer.get(line);
+                    if (processLine(line, output, start == 0 && lineStart == 0)) {
+                        chunk.points++;
+                    }
+                }
+                lineStart = position + 1;
+            }
+
+            chunk.output = output.toByteArray();
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package io.github.macfja.citiesborder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Class Checkpoint.
+ * The state of a CitiesBorder file generation, saved periodically to be able to resume it.
+ * <p>
+ * A checkpoint is saved alongside the CitiesBorder file ({@code <file>.checkpoint}), with the journal
+ * of the stored nodes and ways ({@code <file>.journal}).
+ *
+ * @author MacFJA
+ */
+public class Checkpoint {
+    /**
+     * The suffix of the checkpoint file
+     */
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    /**
+     * The suffix of the journal file
+     */
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * The path to the CitiesBorder file
+     */
+    protected final String outputPath;
+    /**
+     * The number of Xml elements ({@code <node>}, {@code <way>} and {@code <relation>}) between two checkpoints
+     */
+    protected long interval;
+    /**
+     * The size of the Xml file
+     */
+    protected long inputSize;
+    /**
+     * The last modification time of the Xml file
+     */
+    protected long inputModified;
+    /**
+     * The description of what the Xml file was generated from (for example the OSM file and the Osmosis options).
+     * Can be {@code null} if unknown
+     */
+    protected String source;
+    /**
+     * The number of Xml elements read
+     */
+    protected long elements = 0;
+    /**
+     * The size of the CitiesBorder file
+     */
+    protected long outputSize = 0;
+    /**
+     * The size of the journal file
+     */
+    protected long journalSize = 0;
+    /**
+     * The name of the last written city.
+     * Can be {@code null} if no city is written yet
+     */
+    protected String city;
+
+    /**
+     * Constructor.
+     * A checkpoint of a generation that has not started yet.
+     *
+     * @param outputPath The path to the CitiesBorder file
+     * @param inputPath  The path to the Xml file
+     * @param interval   The number of Xml elements between two checkpoints
+     */
+    public Checkpoint(String outputPath, String inputPath, long interval) {
+        this(outputPath, inputPath, interval, null);
+    }
+
+    /**
+     * Constructor.
+     * A checkpoint of a generation that has not started yet.
+     *
+     * @param outputPath The path to the CitiesBorder file
+     * @param inputPath  The path to the Xml file
+     * @param interval   The number of Xml elements between two checkpoints
+     * @param source     The description of what the Xml file was generated from (can be {@code null})
+     */
+    public Checkpoint(String outputPath, String inputPath, long interval, String source) {
+        this.outputPath = outputPath;
+        this.interval = Math.max(1, interval);
+        this.source = source;
+        File input = new File(inputPath);
+        inputSize = input.length();
+        inputModified = input.lastModified();
+    }
+
+    /**
+     * Read the checkpoint of a CitiesBorder file
+     *
+     * @param outputPath The path to the CitiesBorder file
+     * @return The checkpoint, or {@code null} if there is no checkpoint
+     * @throws IOException if an error occurs during the reading
+     */
+    public static Checkpoint load(String outputPath) throws IOException {
+        File file = new File(getCheckpointPath(outputPath));
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+        try {
+            Checkpoint checkpoint = new Checkpoint(outputPath, "", Long.parseLong(properties.getProperty("interval")));
+            checkpoint.inputSize = Long.parseLong(properties.getProperty("input.size"));
+            checkpoint.inputModified = Long.parseLong(properties.getProperty("input.modified"));
+            checkpoint.elements = Long.parseLong(properties.getProperty("elements"));
+            checkpoint.outputSize = Long.parseLong(properties.getProperty("output.size"));
+            checkpoint.journalSize = Long.parseLong(properties.getProperty("journal.size"));
+            checkpoint.city = properties.getProperty("city");
+            checkpoint.source = properties.getProperty("source");
+            return checkpoint;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint file: " + file.getPath());
+        }
+    }
+
+    /**
+     * Get the path to the checkpoint file of a CitiesBorder file
+     *
+     * @param outputPath The path to the CitiesBorder file
+     * @return The path to the checkpoint file
+     */
+    public static String getCheckpointPath(String outputPath) {
+        return outputPath + CHECKPOINT_SUFFIX;
+    }
+
+    /**
+     * Get the path to the journal file of a CitiesBorder file
+     *
+     * @param outputPath The path to the CitiesBorder file
+     * @return The path to the journal file
+     */
+    public static String getJournalPath(String outputPath) {
+        return outputPath + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Check if the generation can be resumed from this checkpoint:
+     * the Xml file has not changed, and the CitiesBorder and journal files contain all the data of the checkpoint
+     *
+     * @param inputPath The path to the Xml file
+     * @return {@code true} if the generation can be resumed
+     */
+    public boolean canResume(String inputPath) {
+        File input = new File(inputPath);
+        return input.length() == inputSize
+                && input.lastModified() == inputModified
+                && new File(outputPath).length() >= outputSize
+                && new File(getJournalPath(outputPath)).length() >= journalSize;
+    }
+
+    /**
+     * Check if the generation can be resumed from this checkpoint (see {@link #canResume(String)}),
+     * and if the Xml file was generated from the same source
+     *
+     * @param inputPath The path to the Xml file
+     * @param source    The description of what the Xml file was generated from ({@code null} to not check it)
+     * @return {@code true} if the generation can be resumed
+     */
+    public boolean canResume(String inputPath, String source) {
+        return canResume(inputPath) && (source == null || isSource(source));
+    }
+
+    /**
+     * Check if the Xml file of this checkpoint was generated from a source
+     *
+     * @param source The description of what the Xml file was generated from
+     * @return {@code true} if the source is the one of this checkpoint
+     */
+    public boolean isSource(String source) {
+        return source == null ? this.source == null : source.equals(this.source);
+    }
+
+    /**
+     * Write the checkpoint file.
+     * The file is replaced atomically, so a crash during the saving keep the previous checkpoint.
+     *
+     * @throws IOException if an error occurs during the writing
+     */
+    public void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("interval", Long.toString(interval));
+        properties.setProperty("input.size", Long.toString(inputSize));
+        properties.setProperty("input.modified", Long.toString(inputModified));
+        properties.setProperty("elements", Long.toString(elements));
+        properties.setProperty("output.size", Long.toString(outputSize));
+        properties.setProperty("journal.size", Long.toString(journalSize));
+        if (city != null) {
+            properties.setProperty("city", city);
+        }
+        if (source != null) {
+            properties.setProperty("source", source);
+        }
+
+        File file = new File(getCheckpointPath(outputPath));
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary)) {
+            properties.store(output, "CitiesBorder generation checkpoint");
+            output.getFD().sync();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Delete the checkpoint and journal files
+     */
+    public void delete() {
+        new File(getCheckpointPath(outputPath)).delete();
+        new File(getJournalPath(outputPath)).delete();
+    }
+
+    /**
+     * @return The path to the CitiesBorder file
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * @return The number of Xml elements between two checkpoints
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return The description of what the Xml file was generated from (or {@code null} if unknown)
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The number of Xml elements read
+     */
+    public long getElements() {
+        return elements;
+    }
+
+    /**
+     * @return The size of the CitiesBorder file
+     */
+    public long getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * @return The size of the journal file
+     */
+    public long getJournalSize() {
+        return journalSize;
+    }
+
+    /**
+     * @return The name of the last written city (or {@code null} if no city is written yet)
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Update the state of the generation
+     *
+     * @param elements    The number of Xml elements read
+     * @param outputSize  The size of the CitiesBorder file
+     * @param journalSize The size of the journal file
+     * @param city        The name of the last written city
+     */
+    public void update(long elements, long outputSize, long journalSize, String city) {
+        this.elements = elements;
+        this.outputSize = outputSize;
+        this.journalSize = journalSize;
+        this.city = city;
+    }
+}
@@ -3,7 +3,9 @@ package io.github.macfja.citiesborder;
 import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.zip.GZIPOutputStream;
 
@@ -19,15 +21,58 @@ public class GZipFileWriter implements Closeable {
      * It encapsulate a GZip writer that encapsulate a FileStream
      */
     protected BufferedWriter writer;
+    /**
+     * The counter of bytes given to the GZip writer
+     */
+    protected CountingOutputStream uncompressedCounter;
+    /**
+     * The counter of bytes written into the file
+     */
+    protected CountingOutputStream compressedCounter;
+    /**
+     * The GZip writer (a new one is created on each {@link #checkpoint()})
+     */
+    protected MemberOutputStream compressor;
+    /**
+     * The file stream
+     */
+    protected FileOutputStream file;
 
     /**
      * The constructor.
      *
-     * @param path The path to the file to write
+     * @param path   The path to the file to write
+     * @param append Indicate if the data must be add to the existing file
      * @throws IOException if an error occurs during the file opening
      */
     public GZipFileWriter(String path, boolean append) throws IOException {
-        writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(path, append))));
+        file = new FileOutputStream(path, append);
+        compressedCounter = new CountingOutputStream(file);
+        compressor = new MemberOutputStream(compressedCounter);
+        uncompressedCounter = new CountingOutputStream(compressor);
+        writer = new BufferedWriter(new OutputStreamWriter(uncompressedCounter));
+    }
+
+    /**
+     * Write all the data into the file and end the current GZip member, the next data are written in a new member.
+     * (A file made of several GZip members is read as one file)
+     * <p>
+     * If the file is truncated to the returned size and then reopened in append mode, writing the same next data
+     * produce the same file.
+     *
+     * @return The size of the file, without the header of the new GZip member
+     * @throws IOException if an error occurs during the writing
+     */
+    public long checkpoint() throws IOException {
+        writer.flush();
+        compressor.finishMember();
+        compressedCounter.flush();
+        file.getFD().sync();
+        long size = file.getChannel().position();
+
+        compressor = new MemberOutputStream(compressedCounter);
+        uncompressedCounter.setOut(compressor);
+        return size;
     }
 
     /**
@@ -44,4 +89,92 @@ public class GZipFileWriter implements Closeable {
     public void close() throws IOException {
         writer.close();
     }
+
+    /**
+     * Get the number of bytes written, before the compression.
+     * Buffered data are not counted until the writer is closed.
+     *
+     * @return The number of bytes
+     */
+    public long getUncompressedSize() {
+        return uncompressedCounter.count;
+    }
+
+    /**
+     * Get the number of bytes written into the file, after the compression.
+     * Buffered data are not counted until the writer is closed.
+     *
+     * @return The number of bytes
+     */
+    public long getCompressedSize() {
+        return compressedCounter.count;
+    }
+
+    /**
+     * A GZip writer of one GZip member, that can be ended without closing the underlying stream
+     */
+    protected static class MemberOutputStream extends GZIPOutputStream {
+        /**
+         * Constructor.
+         *
+         * @param out The output stream to write the member into
+         * @throws IOException if an error occurs during the header writing
+         */
+        public MemberOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        /**
+         * Write the end of the GZip member and release the compressor (the stream can no longer be written)
+         *
+         * @throws IOException if an error occurs during the writing
+         */
+        public void finishMember() throws IOException {
+            try {
+                finish();
+            } finally {
+                def.end();
+            }
+        }
+    }
+
+    /**
+     * An output stream that count the number of written bytes
+     */
+    protected static class CountingOutputStream extends FilterOutputStream {
+        /**
+         * The number of written bytes
+         */
+        protected volatile long count = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param out The output stream to count
+         */
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * Change the counted output stream
+         *
+         * @param out The new output stream to count
+         */
+        public void setOut(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
@@ -3,7 +3,9 @@ package io.github.macfja.citiesborder;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +28,10 @@ public class InputReader implements Closeable {
      * Can be {@code null} (at start and if the data of a city is already read)
      */
     protected Map<Key, Object> currentLine;
+    /**
+     * The counter of decompressed bytes
+     */
+    protected CountingInputStream inflatedCounter;
 
     /**
      * The constructor.
@@ -34,7 +40,8 @@ public class InputReader implements Closeable {
      * @throws IOException if an error occurs during the file opening
      */
     public InputReader(String path) throws IOException {
-        reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(path))));
+        inflatedCounter = new CountingInputStream(new GZIPInputStream(new FileInputStream(path)));
+        reader = new BufferedReader(new InputStreamReader(inflatedCounter));
     }
 
     /**
@@ -72,14 +79,22 @@ public class InputReader implements Closeable {
             return (String) currentLine.get(Key.CityName);
         } else {
             Integer dataSize = (Integer) currentLine.get(Key.DataCount);
-            reader.skip(dataSize + 1);
+            long toSkip = dataSize + 1;
+            while (toSkip > 0) {
+                long skipped = reader.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
+                }
+                toSkip -= skipped;
+            }
             currentLine = null;
             return readEntry();
         }
     }
 
     /**
-     * Read the data of the current city
+     * Read the data of the current city.
+     * Once read, the next call to {@link #readEntry()} read the next city.
      *
      * @return The data of the city, or {@code null} if the end of the file is reach or no city is read
      * @throws IOException if an error occurs during the reading
@@ -90,8 +105,18 @@ public class InputReader implements Closeable {
         } else {
             Integer dataSize = (Integer) currentLine.get(Key.DataCount);
             char[] buffer = new char[dataSize];
-            reader.read(buffer);
-            return new String(buffer);
+            int offset = 0;
+            while (offset < dataSize) {
+                int read = reader.read(buffer, offset, dataSize - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            // Consume the "\n" that end the data
+            reader.read();
+            currentLine = null;
+            return new String(buffer, 0, offset);
         }
     }
 
@@ -100,6 +125,60 @@ public class InputReader implements Closeable {
         reader.close();
     }
 
+    /**
+     * Get the number of bytes decompressed since the file opening.
+     * (it include the data read in advance by the internal buffers)
+     *
+     * @return The number of bytes
+     */
+    public long getInflatedSize() {
+        return inflatedCounter.count;
+    }
+
+    /**
+     * An input stream that count the number of read bytes
+     */
+    protected static class CountingInputStream extends FilterInputStream {
+        /**
+         * The number of read bytes
+         */
+        protected long count = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param in The input stream to count
+         */
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = in.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = in.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = in.skip(n);
+            count += result;
+            return result;
+        }
+    }
+
     /**
      * List of possible key
      */
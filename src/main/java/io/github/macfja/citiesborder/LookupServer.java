@@ -0,0 +1,310 @@
+package io.github.macfja.citiesborder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class LookupServer.
+ * A HTTP server that answer to city lookups, with the borders loaded once in memory.
+ * <p>
+ * Endpoints (all found borders are returned in the CitiesBorder file format, not compressed):
+ * <ul>
+ * <li>{@code GET /lookup/name?name=Lannoy}: the border of a city, by its name</li>
+ * <li>{@code GET /lookup/id?id=12}: the border of a city, by its id (its position in the file)</li>
+ * <li>{@code GET /lookup/point?lat=50.66&lon=3.21}: the border of the city that contains a GPS position</li>
+ * <li>{@code POST /lookup/batch}: the borders of all the cities in the request body (one name by line)</li>
+ * <li>{@code GET /stats}: the latency and throughput counters</li>
+ * </ul>
+ *
+ * @author MacFJA
+ */
+public class LookupServer implements Closeable {
+    /**
+     * The charset of requests and responses
+     */
+    protected static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The number of threads by processor of the default executor, when virtual threads are not available
+     */
+    protected static final int FALLBACK_THREADS_BY_PROCESSOR = 4;
+
+    /**
+     * The borders to look into
+     */
+    protected final BorderIndex index;
+    /**
+     * The latency and throughput counters
+     */
+    protected final Statistics statistics = new Statistics();
+    /**
+     * The HTTP server
+     */
+    protected final HttpServer server;
+    /**
+     * The executor that handle the requests
+     */
+    protected final ExecutorService executor;
+    /**
+     * The application logger
+     */
+    protected Logger logger = Logger.getLogger(LookupServer.class.getName());
+
+    /**
+     * Constructor.
+     * Requests are handled by the executor of {@link #createDefaultExecutor()}.
+     *
+     * @param index The borders to look into
+     * @param port  The port to listen on (0 to use any free port)
+     * @throws IOException if the server can not be created
+     */
+    public LookupServer(BorderIndex index, int port) throws IOException {
+        this(index, port, createDefaultExecutor());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param index    The borders to look into
+     * @param port     The port to listen on (0 to use any free port)
+     * @param executor The executor that handle the requests (shutdown when the server is closed)
+     * @throws IOException if the server can not be created
+     */
+    public LookupServer(BorderIndex index, int port, ExecutorService executor) throws IOException {
+        this.index = index;
+        this.executor = executor;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/lookup/name", new LookupHandler() {
+            @Override
+            protected void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException {
+                writeBorder(exchange, writer, getIndex().getByName(require(query, "name")));
+            }
+        });
+        server.createContext("/lookup/id", new LookupHandler() {
+            @Override
+            protected void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException {
+                writeBorder(exchange, writer, getIndex().getById(Integer.parseInt(require(query, "id"))));
+            }
+        });
+        server.createContext("/lookup/point", new LookupHandler() {
+            @Override
+            protected void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException {
+                writeBorder(exchange, writer, getIndex().locate(
+                        Double.parseDouble(require(query, "lat")),
+                        Double.parseDouble(require(query, "lon"))
+                ));
+            }
+        });
+        server.createContext("/lookup/batch", new LookupHandler() {
+            @Override
+            protected void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException {
+                BufferedReader body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), CHARSET));
+                exchange.sendResponseHeaders(200, 0);
+                String name;
+                while ((name = body.readLine()) != null) {
+                    Border border = getIndex().getByName(name);
+                    if (border != null) {
+                        writer.write(border.toStringExport());
+                    }
+                }
+            }
+        });
+        server.createContext("/stats", new LookupHandler() {
+            @Override
+            protected boolean isLookup() {
+                return false;
+            }
+
+            @Override
+            protected void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                writer.write(String.format(
+                        Locale.ROOT,
+                        "borders: %d%nrequests: %d (%d found)%nthroughput: %.2f requests/s%naverage latency: %.3f ms%nmax latency: %.3f ms%n",
+                        getIndex().size(),
+                        statistics.getSearches(), statistics.getSearchesFound(), statistics.getSearchesPerSecond(),
+                        statistics.getAverageSearchTime() / 1e6, statistics.getMaxSearchTime() / 1e6
+                ));
+            }
+        });
+    }
+
+    /**
+     * Create the default executor of the requests:
+     * one virtual thread by request if the runtime has them (Java 21+),
+     * otherwise a pool of {@link #FALLBACK_THREADS_BY_PROCESSOR} threads by processor.
+     *
+     * @return The executor
+     */
+    public static ExecutorService createDefaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * FALLBACK_THREADS_BY_PROCESSOR);
+        }
+    }
+
+    /**
+     * Start to answer requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return The port the server listen on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return The borders to look into
+     */
+    public BorderIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The latency and throughput counters
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Write a border in the response, or send a "404 Not Found" if there is no border
+     *
+     * @param exchange The HTTP exchange
+     * @param writer   The response body writer
+     * @param border   The border to write (can be {@code null})
+     * @throws IOException if an error occurs while writing the response
+     */
+    protected void writeBorder(HttpExchange exchange, Writer writer, Border border) throws IOException {
+        if (border == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        writer.write(border.toStringExport());
+    }
+
+    /**
+     * Parse the query string of a request
+     *
+     * @param rawQuery The query string (can be {@code null})
+     * @return The parameters of the query (name => value)
+     * @throws IOException if the query is not valid
+     */
+    protected static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) {
+                parameters.put(URLDecoder.decode(parameter, CHARSET.name()), "");
+            } else {
+                parameters.put(
+                        URLDecoder.decode(parameter.substring(0, separator), CHARSET.name()),
+                        URLDecoder.decode(parameter.substring(separator + 1), CHARSET.name())
+                );
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Get a mandatory parameter of the query
+     *
+     * @param query The parameters of the query
+     * @param name  The name of the parameter
+     * @return The value of the parameter
+     * @throws IllegalArgumentException if the parameter is missing
+     */
+    protected static String require(Map<String, String> query, String name) throws IllegalArgumentException {
+        if (!query.containsKey(name)) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return query.get(name);
+    }
+
+    /**
+     * A request handler that stream the response body and measure the request latency
+     */
+    protected abstract class LookupHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            int status = 0;
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + CHARSET.name());
+                Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), CHARSET));
+                try {
+                    lookup(exchange, parseQuery(exchange.getRequestURI().getRawQuery()), writer);
+                    status = exchange.getResponseCode();
+                } catch (IllegalArgumentException e) {
+                    status = 400;
+                    exchange.sendResponseHeaders(status, -1);
+                }
+                writer.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.getMessage());
+            } finally {
+                exchange.close();
+                if (isLookup()) {
+                    statistics.searchFinished(exchange.getRequestURI().getPath(), status == 200, System.nanoTime() - start, 0);
+                }
+            }
+        }
+
+        /**
+         * Indicate if the requests are counted in the latency and throughput counters
+         *
+         * @return {@code true} if the requests are lookups
+         */
+        protected boolean isLookup() {
+            return true;
+        }
+
+        /**
+         * Answer a request.
+         * The response headers must be sent before writing into the body.
+         *
+         * @param exchange The HTTP exchange
+         * @param query    The parameters of the query
+         * @param writer   The response body writer
+         * @throws IOException if an error occurs while writing the response
+         */
+        protected abstract void lookup(HttpExchange exchange, Map<String, String> query, Writer writer) throws IOException;
+    }
+}
@@ -6,6 +6,11 @@ import com.sampullara.cli.Argument;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +27,9 @@ public class Main {
     @Argument(alias = "i")
     public String input;
     /**
-     * The CitiesBorder file path
+     * The CitiesBorder file path.
+     * When several levels are extracted, {@code {level}} is replaced by the administration level
+     * (or the level is added at the end of the path)
      */
     @Argument(alias = "o")
     public String output;
@@ -31,6 +38,17 @@ public class Main {
      */
     @Argument(alias = "l")
     public Integer level = 8;
+    /**
+     * The levels of administration relation to keep, all extracted with one read of the input.
+     * If specified, {@link #level} is ignored
+     */
+    @Argument(alias = "L", delimiter = ",")
+    public Integer[] levels;
+    /**
+     * The additional relation tag filter (an empty value disable it)
+     */
+    @Argument(value = "tag-filter", alias = "t")
+    public String tagFilter = Worker.DEFAULT_TAG_FILTER;
     /**
      * The city name to search
      */
@@ -41,6 +59,44 @@ public class Main {
      */
     @Argument(value = "search-only", alias = "S")
     public boolean searchOnly = false;
+    /**
+     * If specified, the interval (in seconds) between two progress lines.
+     * Statistics are also displayed at the end of the generation and of the search
+     */
+    @Argument(alias = "p")
+    public Integer progress;
+    /**
+     * If specified, the number of Xml elements between two checkpoints of the file generation.
+     * An interrupted generation is resumed from its last checkpoint
+     */
+    @Argument(alias = "c")
+    public Long checkpoint;
+    /**
+     * If specified, start a HTTP server to lookup into the CitiesBorder file
+     */
+    @Argument
+    public boolean serve = false;
+    /**
+     * The port of the HTTP server
+     */
+    @Argument
+    public Integer port = 8080;
+
+    /**
+     * If specified, the grids of the borders are built and saved alongside the CitiesBorder file
+     */
+    @Argument
+    public boolean prepare = false;
+    /**
+     * The CSV file of GPS positions to find the city of
+     */
+    @Argument(value = "geocode", alias = "g")
+    public String geocode;
+    /**
+     * The CSV file to generate with the city of each GPS position
+     */
+    @Argument(value = "geocode-output", alias = "G")
+    public String geocodeOutput;
 
     /**
      * The path where the result of the Osmosis will be put
@@ -50,6 +106,11 @@ public class Main {
      * The application logger
      */
     protected Logger logger = Logger.getLogger(Main.class.getName());
+    /**
+     * The metrics of the current step (generation or search).
+     * Can be {@code null} if the progress is not requested
+     */
+    protected Statistics statistics;
 
     public static void main(String[] args) {
         Main app = new Main();
@@ -75,10 +136,14 @@ public class Main {
     public void run(String[] args) {
         Args.parseOrExit(this, args);
 
-        if (input != null) {
+        int[] extractLevels = getLevels();
+
+        if (input != null && canResume(extractLevels)) {
+            logger.log(Level.INFO, "Osmosis transformation skipped, the file generation will be resumed from its checkpoint");
+        } else if (input != null) {
             logger.log(Level.INFO, "Start Osmosis transformation");
             try {
-                Worker.runOsmosis(tmpPath, input, level);
+                Worker.runOsmosis(tmpPath, input, extractLevels, tagFilter);
             } catch (RuntimeException e) {
                 logger.log(Level.SEVERE, e.getMessage());
                 logger.log(Level.INFO, "Osmosis transformation aborted.");
@@ -88,22 +153,188 @@ public class Main {
 
         if (output != null && !searchOnly) {
             logger.log(Level.INFO, "Start file generation");
+            // Created here so the rates don't include the Osmosis transformation
+            statistics = progress == null ? null : new Statistics();
+            Timer progressTimer = startProgress();
+            if (extractLevels.length > 1 && checkpoint != null) {
+                logger.log(Level.WARNING, "Checkpoints are not available when several levels are extracted");
+            }
             try {
-                Worker.runBuildCitiesBorderFile(tmpPath, output, false);
+                if (extractLevels.length == 1 && checkpoint != null) {
+                    Worker.runResumableBuildCitiesBorderFile(tmpPath, getOutputPath(extractLevels[0], 1), checkpoint, getSource(extractLevels), statistics);
+                } else if (extractLevels.length == 1) {
+                    Worker.runBuildCitiesBorderFile(tmpPath, getOutputPath(extractLevels[0], 1), false, statistics);
+                } else {
+                    Map<Integer, String> outputPaths = new LinkedHashMap<>();
+                    for (int extractLevel : extractLevels) {
+                        outputPaths.put(extractLevel, getOutputPath(extractLevel, extractLevels.length));
+                    }
+                    Worker.runBuildCitiesBorderFiles(tmpPath, outputPaths, false, statistics);
+                }
             } catch (Exception e) {
                 logger.log(Level.SEVERE, e.getMessage());
             }
+            if (progressTimer != null) {
+                progressTimer.cancel();
+                logger.log(Level.INFO, statistics.getSummary());
+            }
             logger.log(Level.INFO, "End file generation");
         }
 
+        if (output != null && prepare) {
+            logger.log(Level.INFO, "Start borders preparation");
+            try {
+                for (int extractLevel : extractLevels) {
+                    Worker.runBuildPreparedFile(getOutputPath(extractLevel, extractLevels.length));
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+            logger.log(Level.INFO, "End borders preparation");
+        }
+
         if (search != null && output != null) {
             logger.log(Level.INFO, "Start border searching");
+            statistics = progress == null ? null : new Statistics();
             try {
-                System.out.println(Arrays.asList(Worker.search(output, search)));
+                for (int extractLevel : extractLevels) {
+                    System.out.println(Arrays.asList(Worker.search(getOutputPath(extractLevel, extractLevels.length), search, statistics)));
+                }
             } catch (IOException e) {
                 logger.log(Level.SEVERE, e.getMessage());
             }
+            if (statistics != null) {
+                logger.log(Level.INFO, statistics.getSearchSummary());
+            }
             logger.log(Level.INFO, "End border searching");
         }
+
+        if (geocode != null && geocodeOutput != null && output != null && extractLevels.length > 1) {
+            logger.log(Level.SEVERE, "The bulk geocoding can only use one level, use -level instead of -levels");
+        } else if (geocode != null && geocodeOutput != null && output != null) {
+            logger.log(Level.INFO, "Start bulk geocoding");
+            try {
+                BulkGeocoder geocoder = new BulkGeocoder(BorderIndex.load(getOutputPath(extractLevels[0], extractLevels.length), true));
+                geocoder.run(geocode, geocodeOutput);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+            logger.log(Level.INFO, "End bulk geocoding");
+        }
+
+        if (serve && output != null && extractLevels.length > 1) {
+            logger.log(Level.SEVERE, "The lookup server can only serve one level, use -level instead of -levels");
+        } else if (serve && output != null) {
+            logger.log(Level.INFO, "Start lookup server");
+            try {
+                final LookupServer server = new LookupServer(BorderIndex.load(getOutputPath(extractLevels[0], extractLevels.length), true), port);
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        server.close();
+                    }
+                });
+                server.start();
+                logger.log(Level.INFO, "Lookup server listening on port " + server.getPort() + " (" + server.getIndex().size() + " border(s))");
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Start to periodically log the progress line
+     *
+     * @return The timer that log the progress line, or {@code null} if the progress is not requested
+     */
+    protected Timer startProgress() {
+        if (statistics == null) {
+            return null;
+        }
+        long interval = TimeUnit.SECONDS.toMillis(Math.max(1, progress));
+        Timer timer = new Timer("progress", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                logger.log(Level.INFO, statistics.getProgressLine());
+            }
+        }, interval, interval);
+        return timer;
+    }
+
+    /**
+     * Check if the file generation will be resumed from a checkpoint of the current Osmosis output
+     * (in this case the Osmosis transformation must not be run again: it would change the Osmosis output).
+     * A checkpoint of an Osmosis output generated from another OSM file or with other options is deleted.
+     *
+     * @param extractLevels The administration levels to work on
+     * @return {@code true} if the file generation will be resumed
+     */
+    protected boolean canResume(int[] extractLevels) {
+        if (checkpoint == null || output == null || searchOnly || extractLevels.length != 1) {
+            return false;
+        }
+        try {
+            Checkpoint existing = Checkpoint.load(getOutputPath(extractLevels[0], 1));
+            if (existing == null) {
+                return false;
+            }
+            if (!existing.isSource(getSource(extractLevels))) {
+                logger.log(Level.WARNING, "The OSM file or the Osmosis options changed since the last checkpoint, the checkpoint is deleted");
+                existing.delete();
+                return false;
+            }
+            return existing.canResume(tmpPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the description of what the Osmosis output is generated from: the OSM file (path, size and last
+     * modification time), the administration levels and the tag filter
+     *
+     * @param extractLevels The administration levels to work on
+     * @return The description, or {@code null} if there is no OSM file (the Osmosis output of a previous run is used)
+     */
+    protected String getSource(int[] extractLevels) {
+        if (input == null) {
+            return null;
+        }
+        File osm = new File(input).getAbsoluteFile();
+        return osm.getPath() + "|" + osm.length() + "|" + osm.lastModified() + "|" + Arrays.toString(extractLevels) + "|" + tagFilter;
+    }
+
+    /**
+     * Get the list of administration levels to work on
+     *
+     * @return {@link #levels} if specified, {@link #level} otherwise
+     */
+    protected int[] getLevels() {
+        if (levels == null || levels.length == 0) {
+            return new int[]{level};
+        }
+        int[] result = new int[levels.length];
+        for (int index = 0; index < levels.length; index++) {
+            result[index] = levels[index];
+        }
+        return result;
+    }
+
+    /**
+     * Get the CitiesBorder file path of an administration level
+     *
+     * @param extractLevel The administration level
+     * @param levelCount   The number of extracted administration levels
+     * @return The path of the file
+     */
+    protected String getOutputPath(int extractLevel, int levelCount) {
+        if (output.contains("{level}")) {
+            return output.replace("{level}", Integer.toString(extractLevel));
+        }
+        if (levelCount == 1) {
+            return output;
+        }
+        return output + "." + extractLevel;
     }
 }
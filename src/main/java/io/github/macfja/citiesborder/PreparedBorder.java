@@ -0,0 +1,437 @@
+package io.github.macfja.citiesborder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class PreparedBorder.
+ * A uniform grid over the bounding box of a border, to test if a GPS position is inside the border
+ * without testing all its edges.
+ * <p>
+ * Each cell is classified as:
+ * <ul>
+ * <li>inside or outside: no edge go through the cell, the whole cell is inside (or outside) the border</li>
+ * <li>boundary: the cell keeps the edges that go through it, a reference point and if this point is inside the border.
+ * A position is inside the border if the segment from the position to the reference point crosses an even number
+ * of edges and the reference point is inside (or an odd number and the reference point is outside).
+ * The reference point is the center of the cell, moved if it is on the line of one of the edges of the cell
+ * (its state would be ambiguous). If no such point is found, all the edges of the border are tested</li>
+ * </ul>
+ *
+ * @author MacFJA
+ */
+public class PreparedBorder {
+    /**
+     * The minimum number of GPS position for a border to be prepared
+     */
+    public static final int MIN_SIZE = 32;
+    /**
+     * The maximum number of cells by side
+     */
+    protected static final int MAX_SIDE = 128;
+    /**
+     * Indicate that the cell is outside the border
+     */
+    protected static final byte OUTSIDE = 0;
+    /**
+     * Indicate that the cell is inside the border
+     */
+    protected static final byte INSIDE = 1;
+    /**
+     * Indicate that edges go through the cell, and that its reference point is outside the border
+     */
+    protected static final byte BOUNDARY_REFERENCE_OUTSIDE = 2;
+    /**
+     * Indicate that edges go through the cell, and that its reference point is inside the border
+     */
+    protected static final byte BOUNDARY_REFERENCE_INSIDE = 3;
+    /**
+     * Indicate that edges go through the cell, and that no reference point has been found: all edges must be tested
+     */
+    protected static final byte BOUNDARY_ALL_EDGES = 4;
+    /**
+     * The maximum number of moves of the reference point of a boundary cell
+     */
+    protected static final int MAX_NUDGES = 16;
+    /**
+     * The minimum distance (in cell size) between the reference point of a boundary cell and the line of its edges
+     */
+    protected static final double LINE_TOLERANCE = 1e-6;
+
+    /**
+     * The prepared border
+     */
+    protected final Border border;
+    /**
+     * The number of cells by side
+     */
+    protected final int side;
+    /**
+     * The height of a cell
+     */
+    protected final double cellHeight;
+    /**
+     * The width of a cell
+     */
+    protected final double cellWidth;
+    /**
+     * The type of each cell (row * side + column => type)
+     */
+    protected final byte[] cells;
+    /**
+     * The edges of each boundary cell (row * side + column => edges).
+     * An edge {@code i} goes from the GPS position {@code i} to the GPS position {@code i + 1} (or {@code 0} for the last one)
+     */
+    protected final int[][] edges;
+    /**
+     * The number of moves of the reference point of each boundary cell (row * side + column => moves).
+     * See {@link #referenceLatitude(int, int)} and {@link #referenceLongitude(int, int)}
+     */
+    protected final byte[] nudges;
+
+    /**
+     * Constructor.
+     * Build the grid of a border.
+     *
+     * @param border The border to prepare
+     */
+    public PreparedBorder(Border border) {
+        this.border = border;
+        int size = border.size();
+        side = (int) Math.min(MAX_SIDE, Math.max(1, Math.ceil(Math.sqrt(size))));
+        cellHeight = Math.max((border.maxLatitude - border.minLatitude) / side, Double.MIN_NORMAL);
+        cellWidth = Math.max((border.maxLongitude - border.minLongitude) / side, Double.MIN_NORMAL);
+        cells = new byte[side * side];
+        edges = new int[side * side][];
+        nudges = new byte[side * side];
+
+        // Put each edge in all cells that its bounding box overlap
+        List<List<Integer>> cellEdges = new ArrayList<>(side * side);
+        for (int cell = 0; cell < side * side; cell++) {
+            cellEdges.add(null);
+        }
+        for (int edge = 0; edge < size; edge++) {
+            int next = (edge + 1) % size;
+            int minRow = row(Math.min(border.latitudes[edge], border.latitudes[next]));
+            int maxRow = row(Math.max(border.latitudes[edge], border.latitudes[next]));
+            int minColumn = column(Math.min(border.longitudes[edge], border.longitudes[next]));
+            int maxColumn = column(Math.max(border.longitudes[edge], border.longitudes[next]));
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    List<Integer> list = cellEdges.get(row * side + column);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        cellEdges.set(row * side + column, list);
+                    }
+                    list.add(edge);
+                }
+            }
+        }
+
+        for (int row = 0; row < side; row++) {
+            boolean previousEmpty = false;
+            for (int column = 0; column < side; column++) {
+                int cell = row * side + column;
+                List<Integer> list = cellEdges.get(cell);
+                if (list == null) {
+                    // Two neighbor cells without edges are on the same side of the border
+                    cells[cell] = previousEmpty
+                            ? cells[cell - 1]
+                            : (border.containsByEdges(centerLatitude(row), centerLongitude(column)) ? INSIDE : OUTSIDE);
+                    previousEmpty = true;
+                    continue;
+                }
+                edges[cell] = new int[list.size()];
+                for (int index = 0; index < list.size(); index++) {
+                    edges[cell][index] = list.get(index);
+                }
+                cells[cell] = BOUNDARY_ALL_EDGES;
+                for (int nudge = 0; nudge <= MAX_NUDGES; nudge++) {
+                    double latitude = referenceLatitude(row, nudge);
+                    double longitude = referenceLongitude(column, nudge);
+                    if (!onEdgeLine(edges[cell], latitude, longitude)) {
+                        nudges[cell] = (byte) nudge;
+                        cells[cell] = border.containsByEdges(latitude, longitude)
+                                ? BOUNDARY_REFERENCE_INSIDE
+                                : BOUNDARY_REFERENCE_OUTSIDE;
+                        break;
+                    }
+                }
+                previousEmpty = false;
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     * Use an already built grid.
+     *
+     * @param border     The prepared border
+     * @param side       The number of cells by side
+     * @param cellHeight The height of a cell
+     * @param cellWidth  The width of a cell
+     * @param cells      The type of each cell
+     * @param edges      The edges of each boundary cell
+     * @param nudges     The number of moves of the reference point of each boundary cell
+     */
+    protected PreparedBorder(Border border, int side, double cellHeight, double cellWidth, byte[] cells, int[][] edges, byte[] nudges) {
+        this.border = border;
+        this.side = side;
+        this.cellHeight = cellHeight;
+        this.cellWidth = cellWidth;
+        this.cells = cells;
+        this.edges = edges;
+        this.nudges = nudges;
+    }
+
+    /**
+     * Check if a GPS position is inside the border
+     *
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return {@code true} if the position is inside the border
+     */
+    public boolean contains(double latitude, double longitude) {
+        if (!border.inBoundingBox(latitude, longitude)) {
+            return false;
+        }
+        int row = row(latitude);
+        int column = column(longitude);
+        int cell = row * side + column;
+        switch (cells[cell]) {
+            case INSIDE:
+                return true;
+            case OUTSIDE:
+                return false;
+            case BOUNDARY_ALL_EDGES:
+                return border.containsByEdges(latitude, longitude);
+            default:
+                boolean inside = cells[cell] == BOUNDARY_REFERENCE_INSIDE;
+                double referenceLatitude = referenceLatitude(row, nudges[cell]);
+                double referenceLongitude = referenceLongitude(column, nudges[cell]);
+                for (int edge : edges[cell]) {
+                    if (crosses(edge, latitude, longitude, referenceLatitude, referenceLongitude)) {
+                        inside = !inside;
+                    }
+                }
+                return inside;
+        }
+    }
+
+    /**
+     * Check if a GPS position is on (or too near to) the line of one of the edges.
+     * The distance is compared to a small part of the cell size, as the rounding errors can put a point that is
+     * on the line a few ulps away from it
+     *
+     * @param cellEdges The edges
+     * @param latitude  The latitude of the position
+     * @param longitude The longitude of the position
+     * @return {@code true} if the position is on the line of an edge
+     */
+    protected boolean onEdgeLine(int[] cellEdges, double latitude, double longitude) {
+        double tolerance = Math.min(cellHeight, cellWidth) * LINE_TOLERANCE;
+        for (int edge : cellEdges) {
+            int next = (edge + 1) % border.size();
+            double length = Math.hypot(border.latitudes[next] - border.latitudes[edge], border.longitudes[next] - border.longitudes[edge]);
+            if (length == 0) {
+                // An edge without length never crosses a segment
+                continue;
+            }
+            double distance = Math.abs(orientation(border.latitudes[edge], border.longitudes[edge], border.latitudes[next], border.longitudes[next], latitude, longitude)) / length;
+            if (distance <= tolerance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the random GPS positions (inside the bounding box of the border) for which the grid does not give
+     * the same result as the test of all the edges of the border
+     *
+     * @param random  The random generator
+     * @param samples The number of positions to test
+     * @return The number of positions with a different result (should be {@code 0})
+     */
+    public int countMismatches(Random random, int samples) {
+        int mismatches = 0;
+        for (int sample = 0; sample < samples; sample++) {
+            double latitude = border.minLatitude + (border.maxLatitude - border.minLatitude) * random.nextDouble();
+            double longitude = border.minLongitude + (border.maxLongitude - border.minLongitude) * random.nextDouble();
+            if (contains(latitude, longitude) != border.containsByEdges(latitude, longitude)) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Check if an edge crosses the segment between a position and the reference point of its cell
+     *
+     * @param edge            The edge
+     * @param latitude        The latitude of the position
+     * @param longitude       The longitude of the position
+     * @param centerLatitude  The latitude of the reference point
+     * @param centerLongitude The longitude of the reference point
+     * @return {@code true} if the edge crosses the segment
+     */
+    protected boolean crosses(int edge, double latitude, double longitude, double centerLatitude, double centerLongitude) {
+        int next = (edge + 1) % border.size();
+        double edgeLatitude = border.latitudes[edge];
+        double edgeLongitude = border.longitudes[edge];
+        double nextLatitude = border.latitudes[next];
+        double nextLongitude = border.longitudes[next];
+
+        double side1 = orientation(edgeLatitude, edgeLongitude, nextLatitude, nextLongitude, latitude, longitude);
+        double side2 = orientation(edgeLatitude, edgeLongitude, nextLatitude, nextLongitude, centerLatitude, centerLongitude);
+        if ((side1 > 0) == (side2 > 0)) {
+            return false;
+        }
+        double side3 = orientation(latitude, longitude, centerLatitude, centerLongitude, edgeLatitude, edgeLongitude);
+        double side4 = orientation(latitude, longitude, centerLatitude, centerLongitude, nextLatitude, nextLongitude);
+        return (side3 > 0) != (side4 > 0);
+    }
+
+    /**
+     * Get on which side of the line (a, b) is the point c
+     *
+     * @return A positive value on one side, negative or zero on the other side
+     */
+    protected static double orientation(double aLatitude, double aLongitude, double bLatitude, double bLongitude, double cLatitude, double cLongitude) {
+        return (bLongitude - aLongitude) * (cLatitude - aLatitude) - (bLatitude - aLatitude) * (cLongitude - aLongitude);
+    }
+
+    /**
+     * Get the row of a latitude (clamped to the grid)
+     */
+    protected int row(double latitude) {
+        return Math.min(side - 1, Math.max(0, (int) ((latitude - border.minLatitude) / cellHeight)));
+    }
+
+    /**
+     * Get the column of a longitude (clamped to the grid)
+     */
+    protected int column(double longitude) {
+        return Math.min(side - 1, Math.max(0, (int) ((longitude - border.minLongitude) / cellWidth)));
+    }
+
+    /**
+     * Get the latitude of the center of a row
+     */
+    protected double centerLatitude(int row) {
+        return border.minLatitude + (row + 0.5) * cellHeight;
+    }
+
+    /**
+     * Get the longitude of the center of a column
+     */
+    protected double centerLongitude(int column) {
+        return border.minLongitude + (column + 0.5) * cellWidth;
+    }
+
+    /**
+     * Get the latitude of the reference point of a boundary cell.
+     * Without move it's the center of the cell, each move gives another point of the cell (low discrepancy sequence).
+     *
+     * @param row   The row of the cell
+     * @param nudge The number of moves
+     * @return The latitude
+     */
+    protected double referenceLatitude(int row, int nudge) {
+        return centerLatitude(row) + nudgeOffset(nudge, 0.6180339887498949) * cellHeight;
+    }
+
+    /**
+     * Get the longitude of the reference point of a boundary cell
+     *
+     * @param column The column of the cell
+     * @param nudge  The number of moves
+     * @return The longitude
+     */
+    protected double referenceLongitude(int column, int nudge) {
+        return centerLongitude(column) + nudgeOffset(nudge, 0.7548776662466927) * cellWidth;
+    }
+
+    /**
+     * Get the offset (in cell size, between -0.45 and 0.45) of the reference point from the center of the cell
+     *
+     * @param nudge The number of moves
+     * @param step  The irrational step of the sequence
+     * @return The offset
+     */
+    protected static double nudgeOffset(int nudge, double step) {
+        if (nudge == 0) {
+            return 0;
+        }
+        double fraction = nudge * step;
+        return (fraction - Math.floor(fraction) - 0.5) * 0.9;
+    }
+
+    /**
+     * Write the grid
+     *
+     * @param output The stream to write into
+     * @throws IOException if an error occurs during the writing
+     */
+    public void write(DataOutputStream output) throws IOException {
+        output.writeInt(side);
+        output.writeDouble(cellHeight);
+        output.writeDouble(cellWidth);
+        output.write(cells);
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (edges[cell] == null) {
+                continue;
+            }
+            output.writeByte(nudges[cell]);
+            output.writeInt(edges[cell].length);
+            for (int edge : edges[cell]) {
+                output.writeInt(edge);
+            }
+        }
+    }
+
+    /**
+     * Read a grid written by {@link #write(DataOutputStream)}
+     *
+     * @param border The prepared border
+     * @param input  The stream to read from
+     * @return The prepared border
+     * @throws IOException if an error occurs during the reading, or if the data are not valid
+     */
+    public static PreparedBorder read(Border border, DataInputStream input) throws IOException {
+        int side = input.readInt();
+        if (side < 1 || side > MAX_SIDE) {
+            throw new IOException("Invalid grid size for " + border);
+        }
+        double cellHeight = input.readDouble();
+        double cellWidth = input.readDouble();
+        byte[] cells = new byte[side * side];
+        input.readFully(cells);
+        int[][] edges = new int[side * side][];
+        byte[] nudges = new byte[side * side];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] < OUTSIDE || cells[cell] > BOUNDARY_ALL_EDGES) {
+                throw new IOException("Invalid cell for " + border);
+            }
+            if (cells[cell] == INSIDE || cells[cell] == OUTSIDE) {
+                continue;
+            }
+            nudges[cell] = input.readByte();
+            if (nudges[cell] < 0 || nudges[cell] > MAX_NUDGES) {
+                throw new IOException("Invalid reference point for " + border);
+            }
+            edges[cell] = new int[input.readInt()];
+            for (int index = 0; index < edges[cell].length; index++) {
+                edges[cell][index] = input.readInt();
+                if (edges[cell][index] < 0 || edges[cell][index] >= border.size()) {
+                    throw new IOException("Invalid edge for " + border);
+                }
+            }
+        }
+        return new PreparedBorder(border, side, cellHeight, cellWidth, cells, edges, nudges);
+    }
+}
@@ -0,0 +1,235 @@
+package io.github.macfja.citiesborder;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * class ResumableXmlHandler.
+ * Read the Osmosis generated XML and create CitiesBorder file, with periodic checkpoints (see {@link Checkpoint}).
+ * <p>
+ * Every stored node and way is added to a journal, so the storage can be restored when resuming.
+ * On each checkpoint the journal and the CitiesBorder file are flushed (the GZip member is ended, see
+ * {@link GZipFileWriter#checkpoint()}) and the number of read Xml elements is saved.
+ * When resuming, the Xml elements already read are skipped.
+ *
+ * @author MacFJA
+ */
+public class ResumableXmlHandler extends XmlHandler implements Closeable {
+    /**
+     * The charset of the journal strings
+     */
+    protected static final Charset CHARSET = Charset.forName("UTF-8");
+    /**
+     * Indicate that the journal entry is a node
+     */
+    protected static final byte JOURNAL_NODE = 'N';
+    /**
+     * Indicate that the journal entry is a way
+     */
+    protected static final byte JOURNAL_WAY = 'W';
+
+    /**
+     * The state of the generation
+     */
+    protected final Checkpoint checkpoint;
+    /**
+     * The number of Xml elements to skip (already read before the checkpoint)
+     */
+    protected final long resumeElements;
+    /**
+     * The journal file stream
+     */
+    protected FileOutputStream journalFile;
+    /**
+     * The journal of stored nodes and ways
+     */
+    protected DataOutputStream journal;
+    /**
+     * The number of Xml elements ({@code <node>}, {@code <way>} and {@code <relation>}) read
+     */
+    protected long elements = 0;
+    /**
+     * Indicate that the current Xml element (and its children) is skipped
+     */
+    protected boolean skipping = false;
+    /**
+     * The id of the current node
+     */
+    protected long currentNode;
+    /**
+     * The name of the last written city
+     */
+    protected String lastCity;
+
+    /**
+     * The Constructor.
+     * Restore the node and way storage from the journal of the checkpoint.
+     *
+     * @param writer     The GZip writer to use (positioned at the end of the file of the checkpoint)
+     * @param checkpoint The state of the generation
+     * @throws IOException if an error occurs while reading or opening the journal
+     */
+    public ResumableXmlHandler(GZipFileWriter writer, Checkpoint checkpoint) throws IOException {
+        super(writer);
+        this.checkpoint = checkpoint;
+        resumeElements = checkpoint.getElements();
+        lastCity = checkpoint.getCity();
+
+        String journalPath = Checkpoint.getJournalPath(checkpoint.getOutputPath());
+        try (RandomAccessFile file = new RandomAccessFile(journalPath, "rw")) {
+            file.setLength(checkpoint.getJournalSize());
+        }
+        restore(journalPath);
+        journalFile = new FileOutputStream(journalPath, true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+
+    /**
+     * Restore the node and way storage from the journal
+     *
+     * @param journalPath The path to the journal
+     * @throws IOException if an error occurs during the reading
+     */
+    protected void restore(String journalPath) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalPath)))) {
+            while (true) {
+                byte type;
+                try {
+                    type = input.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                long id = input.readLong();
+                byte[] value = new byte[input.readInt()];
+                input.readFully(value);
+                if (type == JOURNAL_NODE) {
+                    nodes.put(id, new String(value, CHARSET));
+                } else if (type == JOURNAL_WAY) {
+                    Way way = new Way();
+                    way.id = id;
+                    way.nodes = new String(value, CHARSET);
+                    ways.put(id, way);
+                } else {
+                    throw new IOException("Invalid journal: " + journalPath);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        if (isTopLevel(qName)) {
+            elements++;
+            skipping = elements <= resumeElements;
+        }
+        if (skipping) {
+            return;
+        }
+        if (qName.equals("node")) {
+            currentNode = Long.parseLong(attributes.getValue("id"));
+        }
+        super.startElement(uri, localName, qName, attributes);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (skipping) {
+            return;
+        }
+        Way way = currentWay;
+        String city = currentRelation == null ? null : currentRelation.name;
+        super.endElement(uri, localName, qName);
+
+        try {
+            if (qName.equals("node")) {
+                addToJournal(JOURNAL_NODE, currentNode, nodes.get(currentNode));
+            } else if (qName.equals("way")) {
+                addToJournal(JOURNAL_WAY, way.id, way.nodes);
+            } else if (qName.equals("relation")) {
+                lastCity = city;
+            }
+            if (isTopLevel(qName) && elements % checkpoint.getInterval() == 0) {
+                saveCheckpoint();
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Write the content of the current relation into the file.
+     * Unlike {@link XmlHandler}, a writing error stop the reading: the city would be missing from the file
+     * while the next checkpoint would be saved after it.
+     *
+     * @throws SAXException if an error occurs during the writing
+     */
+    @Override
+    protected void writeCurrentRelation() throws SAXException {
+        try {
+            writeRelation();
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Check if an Xml element is a node, a way or a relation
+     *
+     * @param qName The name of the element
+     * @return {@code true} if the element is a node, a way or a relation
+     */
+    protected boolean isTopLevel(String qName) {
+        return qName.equals("node") || qName.equals("way") || qName.equals("relation");
+    }
+
+    /**
+     * Add an entry to the journal
+     *
+     * @param type  The type of entry
+     * @param id    The id of the node or way
+     * @param value The GPS position(s)
+     * @throws IOException if an error occurs during the writing
+     */
+    protected void addToJournal(byte type, long id, String value) throws IOException {
+        byte[] bytes = value.getBytes(CHARSET);
+        journal.writeByte(type);
+        journal.writeLong(id);
+        journal.writeInt(bytes.length);
+        journal.write(bytes);
+    }
+
+    /**
+     * Flush the CitiesBorder file and the journal, and save the checkpoint
+     *
+     * @throws IOException if an error occurs during the writing
+     */
+    protected void saveCheckpoint() throws IOException {
+        long outputSize = writer.checkpoint();
+        journal.flush();
+        journalFile.getFD().sync();
+        checkpoint.update(elements, outputSize, journalFile.getChannel().position(), lastCity);
+        checkpoint.save();
+    }
+
+    /**
+     * Close the journal
+     *
+     * @throws IOException if an error occurs during the closing
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.macfja.citiesborder;
+
+/**
+ * Interface SearchListener.
+ * Receive the events of the searches into a CitiesBorder file.
+ *
+ * @author MacFJA
+ */
+public interface SearchListener {
+    /**
+     * Called when a search is done
+     *
+     * @param name         The name of the searched city
+     * @param found        {@code true} if the city have been found
+     * @param duration     The time (in nanoseconds) of the search
+     * @param inflatedSize The number of bytes that have been decompressed
+     */
+    void searchFinished(String name, boolean found, long duration, long inflatedSize);
+}
@@ -0,0 +1,368 @@
+package io.github.macfja.citiesborder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class Statistics.
+ * Collect metrics of the CitiesBorder file generation and of the searches.
+ * The metrics can be read from any thread while they are collected.
+ *
+ * @author MacFJA
+ */
+public class Statistics implements BuildListener, SearchListener {
+    /**
+     * The number of slowest relations to keep
+     */
+    public static final int SLOWEST_COUNT = 10;
+    /**
+     * The estimated memory (in bytes) used by a node in the storage, without the characters of its position.
+     * (map entry, map table slot, Long key and String object)
+     */
+    protected static final long NODE_OVERHEAD = 96;
+
+    /**
+     * The time (in nanoseconds) when the collect started
+     */
+    protected final long startTime = System.nanoTime();
+    /**
+     * The number of stored nodes
+     */
+    protected final AtomicLong nodes = new AtomicLong();
+    /**
+     * The estimated memory (in bytes) used by the node storage
+     */
+    protected final AtomicLong nodeStoreMemory = new AtomicLong();
+    /**
+     * The number of stored ways
+     */
+    protected final AtomicLong ways = new AtomicLong();
+    /**
+     * The number of written relations
+     */
+    protected final AtomicLong relations = new AtomicLong();
+    /**
+     * The total time (in nanoseconds) used to assemble relations
+     */
+    protected final AtomicLong assemblyTime = new AtomicLong();
+    /**
+     * The slowest relations to assemble (the fastest is the head of the queue)
+     */
+    protected final PriorityQueue<RelationTime> slowestRelations = new PriorityQueue<>(SLOWEST_COUNT + 1, new Comparator<RelationTime>() {
+        @Override
+        public int compare(RelationTime first, RelationTime second) {
+            return Long.compare(first.assemblyTime, second.assemblyTime);
+        }
+    });
+    /**
+     * The number of bytes written, before the compression
+     */
+    protected final AtomicLong uncompressedSize = new AtomicLong();
+    /**
+     * The number of bytes written, after the compression
+     */
+    protected final AtomicLong compressedSize = new AtomicLong();
+    /**
+     * The number of searches
+     */
+    protected final AtomicLong searches = new AtomicLong();
+    /**
+     * The number of searches that found a city
+     */
+    protected final AtomicLong searchesFound = new AtomicLong();
+    /**
+     * The total time (in nanoseconds) of the searches
+     */
+    protected final AtomicLong searchTime = new AtomicLong();
+    /**
+     * The time (in nanoseconds) of the slowest search
+     */
+    protected final AtomicLong maxSearchTime = new AtomicLong();
+    /**
+     * The number of bytes decompressed by the searches
+     */
+    protected final AtomicLong inflatedSize = new AtomicLong();
+
+    @Override
+    public void nodeStored(long id, String position) {
+        nodes.incrementAndGet();
+        nodeStoreMemory.addAndGet(NODE_OVERHEAD + 2L * position.length());
+    }
+
+    @Override
+    public void wayStored(long id) {
+        ways.incrementAndGet();
+    }
+
+    @Override
+    public void relationWritten(String name, int ways, long assemblyTime) {
+        relations.incrementAndGet();
+        this.assemblyTime.addAndGet(assemblyTime);
+        synchronized (slowestRelations) {
+            slowestRelations.add(new RelationTime(name, ways, assemblyTime));
+            if (slowestRelations.size() > SLOWEST_COUNT) {
+                slowestRelations.poll();
+            }
+        }
+    }
+
+    @Override
+    public void buildFinished(long uncompressedSize, long compressedSize) {
+        this.uncompressedSize.addAndGet(uncompressedSize);
+        this.compressedSize.addAndGet(compressedSize);
+    }
+
+    @Override
+    public void searchFinished(String name, boolean found, long duration, long inflatedSize) {
+        searches.incrementAndGet();
+        if (found) {
+            searchesFound.incrementAndGet();
+        }
+        searchTime.addAndGet(duration);
+        this.inflatedSize.addAndGet(inflatedSize);
+        long max;
+        do {
+            max = maxSearchTime.get();
+        } while (duration > max && !maxSearchTime.compareAndSet(max, duration));
+    }
+
+    /**
+     * Get the time elapsed since the creation of the object
+     *
+     * @return The elapsed time, in seconds
+     */
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Get a number of element by second since the creation of the object
+     *
+     * @param count The number of element
+     * @return The number of element by second
+     */
+    protected double getRate(long count) {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? count / elapsed : 0;
+    }
+
+    /**
+     * @return The number of stored nodes
+     */
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /**
+     * @return The number of stored nodes by second
+     */
+    public double getNodesPerSecond() {
+        return getRate(nodes.get());
+    }
+
+    /**
+     * @return The estimated memory (in bytes) used by the node storage
+     */
+    public long getNodeStoreMemory() {
+        return nodeStoreMemory.get();
+    }
+
+    /**
+     * @return The number of stored ways
+     */
+    public long getWays() {
+        return ways.get();
+    }
+
+    /**
+     * @return The number of stored ways by second
+     */
+    public double getWaysPerSecond() {
+        return getRate(ways.get());
+    }
+
+    /**
+     * @return The number of written relations
+     */
+    public long getRelations() {
+        return relations.get();
+    }
+
+    /**
+     * @return The number of written relations by second
+     */
+    public double getRelationsPerSecond() {
+        return getRate(relations.get());
+    }
+
+    /**
+     * @return The average time (in nanoseconds) to assemble a relation
+     */
+    public long getAverageAssemblyTime() {
+        long count = relations.get();
+        return count == 0 ? 0 : assemblyTime.get() / count;
+    }
+
+    /**
+     * @return The slowest relations to assemble, the slowest first
+     */
+    public List<RelationTime> getSlowestRelations() {
+        List<RelationTime> result;
+        synchronized (slowestRelations) {
+            result = new ArrayList<>(slowestRelations);
+        }
+        Collections.sort(result, Collections.reverseOrder(slowestRelations.comparator()));
+        return result;
+    }
+
+    /**
+     * @return The number of bytes written, before the compression
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize.get();
+    }
+
+    /**
+     * @return The number of bytes written, after the compression
+     */
+    public long getCompressedSize() {
+        return compressedSize.get();
+    }
+
+    /**
+     * @return The number of searches
+     */
+    public long getSearches() {
+        return searches.get();
+    }
+
+    /**
+     * @return The number of searches that found a city
+     */
+    public long getSearchesFound() {
+        return searchesFound.get();
+    }
+
+    /**
+     * @return The number of searches by second
+     */
+    public double getSearchesPerSecond() {
+        return getRate(searches.get());
+    }
+
+    /**
+     * @return The average time (in nanoseconds) of a search
+     */
+    public long getAverageSearchTime() {
+        long count = searches.get();
+        return count == 0 ? 0 : searchTime.get() / count;
+    }
+
+    /**
+     * @return The time (in nanoseconds) of the slowest search
+     */
+    public long getMaxSearchTime() {
+        return maxSearchTime.get();
+    }
+
+    /**
+     * @return The number of bytes decompressed by the searches
+     */
+    public long getInflatedSize() {
+        return inflatedSize.get();
+    }
+
+    /**
+     * Get a one line summary of the file generation progress
+     *
+     * @return The progress line
+     */
+    public String getProgressLine() {
+        return String.format(
+                Locale.ROOT,
+                "%.0fs - nodes: %d (%.0f/s, ~%d MB) - ways: %d (%.0f/s) - relations: %d (%.1f/s, avg %.1f ms)",
+                getElapsedSeconds(),
+                getNodes(), getNodesPerSecond(), getNodeStoreMemory() / (1024 * 1024),
+                getWays(), getWaysPerSecond(),
+                getRelations(), getRelationsPerSecond(), getAverageAssemblyTime() / 1e6
+        );
+    }
+
+    /**
+     * Get the summary of all collected metrics
+     *
+     * @return The summary (multiple lines)
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(getProgressLine());
+        if (getUncompressedSize() > 0) {
+            summary.append(String.format(
+                    Locale.ROOT,
+                    "%nwritten: %d bytes, compressed: %d bytes (%.1f%%)",
+                    getUncompressedSize(), getCompressedSize(), 100.0 * getCompressedSize() / getUncompressedSize()
+            ));
+        }
+        for (RelationTime relation : getSlowestRelations()) {
+            summary.append(String.format(Locale.ROOT, "%nslow relation: %s", relation));
+        }
+        if (getSearches() > 0) {
+            summary.append(String.format("%n")).append(getSearchSummary());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Get a one line summary of the searches
+     *
+     * @return The search summary
+     */
+    public String getSearchSummary() {
+        return String.format(
+                Locale.ROOT,
+                "searches: %d (%d found) - avg %.2f ms, max %.2f ms - inflated: %d bytes",
+                getSearches(), getSearchesFound(), getAverageSearchTime() / 1e6, getMaxSearchTime() / 1e6, getInflatedSize()
+        );
+    }
+
+    /**
+     * The assembly time of a relation
+     */
+    public static class RelationTime {
+        /**
+         * The name of the relation
+         */
+        public final String name;
+        /**
+         * The number of ways of the relation
+         */
+        public final int ways;
+        /**
+         * The time (in nanoseconds) used to assemble the relation
+         */
+        public final long assemblyTime;
+
+        /**
+         * Constructor.
+         *
+         * @param name         The name of the relation
+         * @param ways         The number of ways of the relation
+         * @param assemblyTime The time (in nanoseconds) used to assemble the relation
+         */
+        public RelationTime(String name, int ways, long assemblyTime) {
+            this.name = name;
+            this.ways = ways;
+            this.assemblyTime = assemblyTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "{%s} %d way(s) in %.1f ms", name, ways, assemblyTime / 1e6);
+        }
+    }
+}
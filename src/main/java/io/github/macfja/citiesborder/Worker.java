@@ -8,6 +8,12 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Class Worker.
@@ -15,6 +21,11 @@ import java.io.IOException;
  * @author MacFJA
  */
 public final class Worker {
+    /**
+     * The relation tag filter used when none is provided (French cities)
+     */
+    public static final String DEFAULT_TAG_FILTER = "ref:INSEE=*";
+
     /**
      * Protect class creation
      */
@@ -31,6 +42,20 @@ public final class Worker {
      * @throws RuntimeException if All required Osmosis plugin are not available
      */
     public static void runOsmosis(String outputPath, String inputPath, int administrationLevel) throws RuntimeException {
+        runOsmosis(outputPath, inputPath, new int[]{administrationLevel}, DEFAULT_TAG_FILTER);
+    }
+
+    /**
+     * Run Osmosis to transform the heavy pbf file into a less heavy and more relevant Xml file.
+     * All administration levels are extracted in a single read of the PBF file.
+     *
+     * @param outputPath           Where to generate the file
+     * @param inputPath            The OpenStreetMap PBF file
+     * @param administrationLevels The administration levels to extract
+     * @param tagFilter            An additional relation tag filter (like {@code ref:INSEE=*}), can be {@code null}
+     * @throws RuntimeException if All required Osmosis plugin are not available
+     */
+    public static void runOsmosis(String outputPath, String inputPath, int[] administrationLevels, String tagFilter) throws RuntimeException {
         if (!validateDependencies(new String[]{
                 "crosby.binary.osmosis.BinaryPluginLoader", // PBF OSM plugin
                 "org.openstreetmap.osmosis.tagfilter.TagFilterPluginLoader", // Tag Filter OSM plugin
@@ -38,23 +63,35 @@ public final class Worker {
         })) {
             throw new RuntimeException("Some Osmosis plugin are missing");
         }
+        if (administrationLevels.length == 0) {
+            throw new RuntimeException("At least one administration level is required");
+        }
         (new File(outputPath)).getParentFile().mkdirs();
 
-        String[] args = new String[]{
-                "--read-pbf",
-                "file=" + inputPath,
-                "--tf",
-                "accept-relation",
-                "admin_level=" + administrationLevel,
-                "--tf",
-                "accept-relation",
-                "ref:INSEE=*",
-                "--used-way",
-                "--used-node",
-                "--write-xml",
-                outputPath
-        };
-        Osmosis.run(args);
+        StringBuilder levels = new StringBuilder();
+        for (int administrationLevel : administrationLevels) {
+            if (levels.length() > 0) {
+                levels.append(',');
+            }
+            levels.append(administrationLevel);
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add("--read-pbf");
+        args.add("file=" + inputPath);
+        args.add("--tf");
+        args.add("accept-relation");
+        args.add("admin_level=" + levels);
+        if (tagFilter != null && !tagFilter.isEmpty()) {
+            args.add("--tf");
+            args.add("accept-relation");
+            args.add(tagFilter);
+        }
+        args.add("--used-way");
+        args.add("--used-node");
+        args.add("--write-xml");
+        args.add(outputPath);
+        Osmosis.run(args.toArray(new String[args.size()]));
     }
 
     /**
@@ -69,15 +106,192 @@ public final class Worker {
      * @throws SAXException                 If any SAX errors occur during processing.
      */
     public static void runBuildCitiesBorderFile(String inputPath, String outputPath, boolean append) throws ParserConfigurationException, SAXException, IOException {
+        runBuildCitiesBorderFile(inputPath, outputPath, append, null);
+    }
+
+    /**
+     * Transform the transformed Osmosis Xml file into a CitiesBorder file
+     *
+     * @param inputPath  The path use on Osmosis output
+     * @param outputPath Where to generate the file
+     * @param append     Indicate if the data must be add to an existing file (if {@code false} the file will be emptied before execution)
+     * @param listener   The listener of the generation events (can be {@code null})
+     * @throws ParserConfigurationException if a parser cannot be created which satisfies the requested configuration.
+     * @throws IllegalArgumentException     If the File object is null.
+     * @throws IOException                  If any IO errors occur.
+     * @throws SAXException                 If any SAX errors occur during processing.
+     */
+    public static void runBuildCitiesBorderFile(String inputPath, String outputPath, boolean append, BuildListener listener) throws ParserConfigurationException, SAXException, IOException {
         SAXParserFactory factory = SAXParserFactory.newInstance();
         SAXParser parser = factory.newSAXParser();
 
         GZipFileWriter writer = new GZipFileWriter(outputPath, append);
 
         XmlHandler handler = new XmlHandler(writer);
+        handler.setListener(listener);
         parser.parse(new File(inputPath), handler);
         handler.clear();
         writer.close();
+
+        if (listener != null) {
+            listener.buildFinished(writer.getUncompressedSize(), writer.getCompressedSize());
+        }
+    }
+
+    /**
+     * Transform the transformed Osmosis Xml file into a CitiesBorder file, with periodic checkpoints.
+     * If a checkpoint of a previous (interrupted) generation exists for the same Xml file, the generation is resumed
+     * from it, and the result is the same file as an uninterrupted generation.
+     * Checkpoint files are deleted at the end of the generation.
+     *
+     * @param inputPath          The path use on Osmosis output
+     * @param outputPath         Where to generate the file
+     * @param checkpointInterval The number of Xml elements between two checkpoints (ignored when resuming, the interval of the checkpoint is used)
+     * @param listener           The listener of the generation events (can be {@code null})
+     * @throws ParserConfigurationException if a parser cannot be created which satisfies the requested configuration.
+     * @throws IllegalArgumentException     If the File object is null.
+     * @throws IOException                  If any IO errors occur.
+     * @throws SAXException                 If any SAX errors occur during processing.
+     * @see Checkpoint
+     */
+    public static void runResumableBuildCitiesBorderFile(String inputPath, String outputPath, long checkpointInterval, BuildListener listener) throws ParserConfigurationException, SAXException, IOException {
+        runResumableBuildCitiesBorderFile(inputPath, outputPath, checkpointInterval, null, listener);
+    }
+
+    /**
+     * Transform the transformed Osmosis Xml file into a CitiesBorder file, with periodic checkpoints.
+     * If a checkpoint of a previous (interrupted) generation exists for the same Xml file generated from the same
+     * source, the generation is resumed from it, and the result is the same file as an uninterrupted generation.
+     * Checkpoint files are deleted at the end of the generation.
+     *
+     * @param inputPath          The path use on Osmosis output
+     * @param outputPath         Where to generate the file
+     * @param checkpointInterval The number of Xml elements between two checkpoints (ignored when resuming, the interval of the checkpoint is used)
+     * @param source             The description of what the Xml file was generated from, saved in the checkpoint ({@code null} if unknown, the source of the checkpoint is then not checked)
+     * @param listener           The listener of the generation events (can be {@code null})
+     * @throws ParserConfigurationException if a parser cannot be created which satisfies the requested configuration.
+     * @throws IllegalArgumentException     If the File object is null.
+     * @throws IOException                  If any IO errors occur.
+     * @throws SAXException                 If any SAX errors occur during processing.
+     * @see Checkpoint
+     */
+    public static void runResumableBuildCitiesBorderFile(String inputPath, String outputPath, long checkpointInterval, String source, BuildListener listener) throws ParserConfigurationException, SAXException, IOException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser parser = factory.newSAXParser();
+
+        Checkpoint checkpoint = Checkpoint.load(outputPath);
+        if (checkpoint != null && checkpoint.canResume(inputPath, source)) {
+            Logger.getLogger(Worker.class.getName()).log(
+                    Level.INFO,
+                    "Resume generation after " + checkpoint.getElements() + " element(s), last city: " + checkpoint.getCity()
+            );
+        } else {
+            if (checkpoint != null) {
+                Logger.getLogger(Worker.class.getName()).log(
+                        Level.WARNING,
+                        "The Xml file, its source or the generated files changed since the last checkpoint, the generation restart from the beginning"
+                );
+            }
+            checkpoint = new Checkpoint(outputPath, inputPath, checkpointInterval, source);
+        }
+        try (RandomAccessFile output = new RandomAccessFile(outputPath, "rw")) {
+            output.setLength(checkpoint.getOutputSize());
+        }
+
+        // Both are closed even if the other fails, the first error is the one thrown (the next ones are suppressed)
+        GZipFileWriter closedWriter;
+        try (GZipFileWriter writer = new GZipFileWriter(outputPath, true);
+             ResumableXmlHandler handler = new ResumableXmlHandler(writer, checkpoint)) {
+            closedWriter = writer;
+            handler.setListener(listener);
+            try {
+                parser.parse(new File(inputPath), handler);
+            } finally {
+                handler.clear();
+            }
+        }
+        checkpoint.delete();
+
+        if (listener != null) {
+            listener.buildFinished(closedWriter.getUncompressedSize(), closedWriter.getCompressedSize());
+        }
+    }
+
+    /**
+     * Transform the transformed Osmosis Xml file into one CitiesBorder file per administration level.
+     * The Xml file is read only once, each relation is written in the file of its {@code admin_level}.
+     * Relations with a level that is not in {@code outputPaths} are ignored.
+     *
+     * @param inputPath   The path use on Osmosis output
+     * @param outputPaths The path of the file to generate for each administration level
+     * @param append      Indicate if the data must be add to existing files (if {@code false} the files will be emptied before execution)
+     * @throws ParserConfigurationException if a parser cannot be created which satisfies the requested configuration.
+     * @throws IllegalArgumentException     If the File object is null.
+     * @throws IOException                  If any IO errors occur.
+     * @throws SAXException                 If any SAX errors occur during processing.
+     */
+    public static void runBuildCitiesBorderFiles(String inputPath, Map<Integer, String> outputPaths, boolean append) throws ParserConfigurationException, SAXException, IOException {
+        runBuildCitiesBorderFiles(inputPath, outputPaths, append, null);
+    }
+
+    /**
+     * Transform the transformed Osmosis Xml file into one CitiesBorder file per administration level.
+     * The Xml file is read only once, each relation is written in the file of its {@code admin_level}.
+     * Relations with a level that is not in {@code outputPaths} are ignored.
+     *
+     * @param inputPath   The path use on Osmosis output
+     * @param outputPaths The path of the file to generate for each administration level
+     * @param append      Indicate if the data must be add to existing files (if {@code false} the files will be emptied before execution)
+     * @param listener    The listener of the generation events (can be {@code null})
+     * @throws ParserConfigurationException if a parser cannot be created which satisfies the requested configuration.
+     * @throws IllegalArgumentException     If the File object is null.
+     * @throws IOException                  If any IO errors occur.
+     * @throws SAXException                 If any SAX errors occur during processing.
+     */
+    public static void runBuildCitiesBorderFiles(String inputPath, Map<Integer, String> outputPaths, boolean append, BuildListener listener) throws ParserConfigurationException, SAXException, IOException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser parser = factory.newSAXParser();
+
+        XmlHandler handler = new XmlHandler(null);
+        handler.setListener(listener);
+        List<GZipFileWriter> writers = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, String> output : outputPaths.entrySet()) {
+                GZipFileWriter writer = new GZipFileWriter(output.getValue(), append);
+                writers.add(writer);
+                handler.setWriter(output.getKey(), writer);
+            }
+            parser.parse(new File(inputPath), handler);
+        } finally {
+            handler.clear();
+            for (GZipFileWriter writer : writers) {
+                writer.close();
+            }
+        }
+
+        if (listener != null) {
+            long uncompressedSize = 0;
+            long compressedSize = 0;
+            for (GZipFileWriter writer : writers) {
+                uncompressedSize += writer.getUncompressedSize();
+                compressedSize += writer.getCompressedSize();
+            }
+            listener.buildFinished(uncompressedSize, compressedSize);
+        }
+    }
+
+    /**
+     * Build the grids of all the borders of a CitiesBorder file (see {@link PreparedBorder}) and save them
+     * alongside the file (see {@link BorderIndex#getPreparedPath(String)}), so lookups by GPS position
+     * don't have to build them at startup.
+     *
+     * @param inputPath The path to the CitiesBorder file
+     * @throws IOException if an error occur while reading or writing a file
+     */
+    public static void runBuildPreparedFile(String inputPath) throws IOException {
+        BorderIndex index = BorderIndex.load(inputPath);
+        index.prepareBorders();
+        index.writePrepared(BorderIndex.getPreparedPath(inputPath));
     }
 
     /**
@@ -89,18 +303,36 @@ public final class Worker {
      * @throws IOException if an error occur while reading the file
      */
     public static String[] search(String inputPath, String name) throws IOException {
+        return search(inputPath, name, null);
+    }
+
+    /**
+     * Search a city into a CitiesBorder file
+     *
+     * @param inputPath The path to the CitiesBorder file
+     * @param name      The name of the city to search
+     * @param listener  The listener of the search (can be {@code null})
+     * @return The list of GPS position (or an empty list if the city is not found)
+     * @throws IOException if an error occur while reading the file
+     */
+    public static String[] search(String inputPath, String name, SearchListener listener) throws IOException {
+        long start = System.nanoTime();
         InputReader reader = new InputReader(inputPath);
+        String[] result = new String[0];
 
         String readName;
         while ((readName = reader.readEntry()) != null) {
             if (readName.equals(name)) {
-                String[] result = reader.readData().split("\n");
-                reader.close();
-                return result;
+                result = reader.readData().split("\n");
+                break;
             }
         }
         reader.close();
-        return new String[0];
+
+        if (listener != null) {
+            listener.searchFinished(name, result.length > 0, System.nanoTime() - start, reader.getInflatedSize());
+        }
+        return result;
     }
 
     /**
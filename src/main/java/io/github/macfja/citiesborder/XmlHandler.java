@@ -33,6 +33,16 @@ public class XmlHandler extends DefaultHandler {
      * The file writer to use
      */
     protected GZipFileWriter writer;
+    /**
+     * The file writers to use by administration level (admin_level => writer).
+     * A relation which level is not in this map is written with {@link #writer}.
+     */
+    protected final Map<Integer, GZipFileWriter> levelWriters = new HashMap<>();
+    /**
+     * The listener of the generation events.
+     * Can be {@code null}
+     */
+    protected BuildListener listener;
     /**
      * The current way. (store data of the currently read way)
      * Can be {@code null} if the current read element is not a way or in a way element.
@@ -62,6 +72,25 @@ public class XmlHandler extends DefaultHandler {
         this.writer = writer;
     }
 
+    /**
+     * Set the listener of the generation events
+     *
+     * @param listener The listener (or {@code null} to remove it)
+     */
+    public void setListener(BuildListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set the writer to use for an administration level
+     *
+     * @param level  The administration level (value of the {@code admin_level} tag)
+     * @param writer The writer
+     */
+    public void setWriter(int level, GZipFileWriter writer) {
+        levelWriters.put(level, writer);
+    }
+
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
         super.startElement(uri, localName, qName, attributes);
@@ -74,10 +103,16 @@ public class XmlHandler extends DefaultHandler {
          *  - For <way><member type=way> we add to the currentRelation the stored <relation> data
          *  - For <way><member type=node> we do nothing (center point is not relevant)
          *  - For <way><tag k=name> we keep "v"
+         *  - For <way><tag k=admin_level> we keep "v"
          * The rest is ignored
          */
         if (qName.equals("node")) {
-            nodes.put(Long.parseLong(attributes.getValue("id")), attributes.getValue("lat") + " " + attributes.getValue("lon"));
+            long id = Long.parseLong(attributes.getValue("id"));
+            String position = attributes.getValue("lat") + " " + attributes.getValue("lon");
+            nodes.put(id, position);
+            if (listener != null) {
+                listener.nodeStored(id, position);
+            }
         } else if (qName.equals("nd")) {
             currentWay.addNode(nodes.get(Long.parseLong(attributes.getValue("ref"))));
         } else if (qName.equals("way")) {
@@ -91,6 +126,12 @@ public class XmlHandler extends DefaultHandler {
             }
         } else if (qName.equals("tag") && currentRelation != null && attributes.getValue("k").equals("name")) {
             currentRelation.name = attributes.getValue("v");
+        } else if (qName.equals("tag") && currentRelation != null && attributes.getValue("k").equals("admin_level")) {
+            try {
+                currentRelation.level = Integer.parseInt(attributes.getValue("v"));
+            } catch (NumberFormatException e) {
+                currentRelation.level = null;
+            }
         }
 
     }
@@ -99,6 +140,9 @@ public class XmlHandler extends DefaultHandler {
     public void endElement(String uri, String localName, String qName) throws SAXException {
         if (qName.equals("way")) {
             ways.put(currentWay.id, currentWay);
+            if (listener != null) {
+                listener.wayStored(currentWay.id);
+            }
             currentWay = null;
         } else if (qName.equals("relation")) {
             writeCurrentRelation();
@@ -108,15 +152,39 @@ public class XmlHandler extends DefaultHandler {
 
     /**
      * Write the content of the current relation into the file.
+     * A writing error is logged, and the reading continue.
+     *
+     * @throws SAXException if the reading must be stopped
      */
-    protected void writeCurrentRelation() {
+    protected void writeCurrentRelation() throws SAXException {
         try {
-            writer.write(currentRelation.toStringExport());
+            writeRelation();
         } catch (IOException e) {
             Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, e.getMessage());
         }
     }
 
+    /**
+     * Write the content of the current relation into the file of its level.
+     *
+     * @throws IOException if an error occurs during the writing
+     */
+    protected void writeRelation() throws IOException {
+        GZipFileWriter target = writer;
+        if (currentRelation.level != null && levelWriters.containsKey(currentRelation.level)) {
+            target = levelWriters.get(currentRelation.level);
+        }
+        if (target == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        String export = currentRelation.toStringExport();
+        if (listener != null) {
+            listener.relationWritten(currentRelation.name, currentRelation.ways.size(), System.nanoTime() - start);
+        }
+        target.write(export);
+    }
+
     /**
      * Clear all storage
      */
@@ -181,6 +249,11 @@ public class XmlHandler extends DefaultHandler {
          * The name of the relation, which is the name of the city
          */
         String name;
+        /**
+         * The administration level of the relation.
+         * Can be {@code null} if the relation has no (numeric) {@code admin_level} tag
+         */
+        Integer level;
 
         /**
          * Add a way